@@ -19,24 +19,56 @@ api.interceptors.request.use(
   (error) => Promise.reject(error)
 );
 
-// Response Interceptor: Handle Token Expiration (Auto Logout)
+// Response Interceptor: Refresh expired access tokens, log out if that fails
+let refreshPromise = null;
+
+const forceLogout = () => {
+  console.warn("Session expired. Logging out...");
+
+  // Clear local storage
+  localStorage.removeItem('token');
+  localStorage.removeItem('refreshToken');
+
+  // Force redirect to login page
+  if (window.location.pathname !== '/login') {
+    window.location.href = '/login';
+  }
+};
+
 api.interceptors.response.use(
   (response) => response,
-  (error) => {
+  async (error) => {
+    const original = error.config;
+
     // Check if error is 401 (Unauthorized) or 403 (Forbidden)
     if (error.response && (error.response.status === 401 || error.response.status === 403)) {
-      console.warn("Session expired. Logging out...");
-      
-      // Clear local storage
-      localStorage.removeItem('token');
-      
-      // Force redirect to login page
-      if (window.location.pathname !== '/login') {
-        window.location.href = '/login';
+      const refreshToken = localStorage.getItem('refreshToken');
+
+      // Try one refresh per request; concurrent 401s share the same refresh call
+      if (refreshToken && !original._retried && !original.url.startsWith('/auth/')) {
+        original._retried = true;
+        try {
+          if (!refreshPromise) {
+            refreshPromise = api.post('/auth/refresh', { refreshToken })
+              .finally(() => { refreshPromise = null; });
+          }
+          const { data } = await refreshPromise;
+          localStorage.setItem('token', data.accessToken);
+          localStorage.setItem('refreshToken', data.refreshToken);
+          return api(original);
+        } catch (refreshError) {
+          // 401: the refresh token is no longer valid. Anything else (5xx, network) keeps the session
+          if (refreshError.response && refreshError.response.status === 401) {
+            forceLogout();
+          }
+          return Promise.reject(refreshError);
+        }
       }
+
+      forceLogout();
     }
     return Promise.reject(error);
   }
 );
 
-export default api;
\ No newline at end of file
+export default api;
@@ -23,21 +23,14 @@ const JobHistory = () => {
   }, []);
 
   // Handle the physical file download
-  const handleDownloadFile = async (externalId, originalUrl) => {
+  const handleDownloadFile = async (externalId) => {
     try {
-      const response = await api.get(`/jobs/download/${externalId}`, {
-        responseType: 'blob', // Important: Tell Axios this is a file, not JSON
-      });
-      
-      // Create a temporary link to trigger the browser's download dialog
-      const url = window.URL.createObjectURL(new Blob([response.data]));
+      // Ask for a short-lived signed link; the browser then streams the file
+      // straight from the job-service node instead of through the gateway
+      const response = await api.get(`/jobs/download-url/${externalId}`);
+
       const link = document.createElement('a');
-      link.href = url;
-      
-      // Try to name the file based on the original URL or ID
-      const suggestedName = originalUrl ? `clipit-${originalUrl.slice(-10)}.mp4` : `clipit-${externalId}.mp4`;
-      link.setAttribute('download', suggestedName);
-      
+      link.href = response.data;
       document.body.appendChild(link);
       link.click();
       link.remove();
@@ -104,7 +97,7 @@ const JobHistory = () => {
             <div className="sm:self-center w-full sm:w-auto">
               {job.status === 'COMPLETED' ? (
                 <button
-                  onClick={() => handleDownloadFile(job.externalId, job.originalUrl)}
+                  onClick={() => handleDownloadFile(job.externalId)}
                   className="w-full sm:w-auto px-5 py-2 bg-green-600 hover:bg-green-500 text-white text-sm font-bold rounded-lg shadow-lg hover:shadow-green-500/20 transition-all flex items-center justify-center gap-2"
                 >
                   <svg className="w-4 h-4" fill="none" stroke="currentColor" viewBox="0 0 24 24"><path strokeLinecap="round" strokeLinejoin="round" strokeWidth="2" d="M4 16v1a3 3 0 003 3h10a3 3 0 003-3v-1m-4-4l-4 4m0 0l-4-4m4 4V4"></path></svg>
@@ -14,9 +14,10 @@ export const AuthProvider = ({ children }) => {
     }
   }, [token]);
 
-  // Function to log in (save token)
-  const login = (newToken) => {
+  // Function to log in (save access + refresh token)
+  const login = (newToken, refreshToken) => {
     localStorage.setItem('token', newToken);
+    localStorage.setItem('refreshToken', refreshToken);
     setToken(newToken);
     setIsAuthenticated(true);
   };
@@ -24,6 +25,7 @@ export const AuthProvider = ({ children }) => {
   // Function to log out (clear token)
   const logout = () => {
     localStorage.removeItem('token');
+    localStorage.removeItem('refreshToken');
     setToken(null);
     setIsAuthenticated(false);
   };
@@ -23,7 +23,7 @@ const Login = () => {
 
     try {
       const response = await api.post('/auth/login', formData);
-      login(response.data);
+      login(response.data.accessToken, response.data.refreshToken);
       navigate('/dashboard');
     } catch (err) {
       console.error("Login Failed:", err);
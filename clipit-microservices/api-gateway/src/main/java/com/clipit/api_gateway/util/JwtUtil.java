@@ -10,6 +10,7 @@ import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 
 @Component
 public class JwtUtil {
@@ -17,6 +18,15 @@ public class JwtUtil {
 	@Value("${jwt.secret}")
 	public String SECRET;
 
+	// Built once instead of on every request
+	private Key signKey;
+
+	@PostConstruct
+	public void init() {
+		byte[] keyBytes = Decoders.BASE64.decode(SECRET);
+		signKey = Keys.hmacShaKeyFor(keyBytes);
+	}
+
 	public void validateToken(final String token) {
 		Jwts.parserBuilder().setSigningKey(getSignKey()).build().parseClaimsJws(token);
 	}
@@ -42,7 +52,6 @@ public class JwtUtil {
 	}
 
 	private Key getSignKey() {
-		byte[] keyBytes = Decoders.BASE64.decode(SECRET);
-		return Keys.hmacShaKeyFor(keyBytes);
+		return signKey;
 	}
 }
\ No newline at end of file
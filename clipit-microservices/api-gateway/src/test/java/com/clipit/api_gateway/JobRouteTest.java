@@ -0,0 +1,108 @@
+package com.clipit.api_gateway;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.sun.net.httpserver.HttpServer;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Sends requests through the job-service route to a stub job-service and checks what arrives.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "eureka.client.enabled=false")
+class JobRouteTest {
+
+	private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+
+	private static final HttpServer jobService = startJobService();
+
+	// "METHOD path" -> "X-User-Id|body" of the last request the stub received
+	private static final Map<String, String> received = new ConcurrentHashMap<>();
+
+	@Autowired
+	private WebTestClient client;
+
+	@DynamicPropertySource
+	static void properties(DynamicPropertyRegistry registry) {
+		registry.add("jwt.secret", () -> SECRET);
+		// lb://job-service resolves to the stub instead of a Eureka instance
+		registry.add("spring.cloud.discovery.client.simple.instances.job-service[0].uri",
+				() -> "http://localhost:" + jobService.getAddress().getPort());
+	}
+
+	@AfterAll
+	static void stopJobService() {
+		jobService.stop(0);
+	}
+
+	@Test
+	void uploadChunksReachJobService() {
+		client.put().uri("/api/jobs/uploads/abc?offset=0")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token("42"))
+				.contentType(MediaType.APPLICATION_OCTET_STREAM)
+				.bodyValue("chunk-bytes".getBytes(StandardCharsets.UTF_8))
+				.exchange()
+				.expectStatus().isOk();
+
+		assertEquals("42|chunk-bytes", received.get("PUT /jobs/uploads/abc"));
+	}
+
+	@Test
+	void uploadChunksNeedAToken() {
+		client.put().uri("/api/jobs/uploads/abc?offset=0")
+				.bodyValue("chunk-bytes")
+				.exchange()
+				.expectStatus().isUnauthorized();
+	}
+
+	@Test
+	void signedDownloadsDoNotGoThroughTheGateway() {
+		// Served by the job-service node's public downloads port instead
+		client.get().uri("/api/files/abc/abc.mp4?u=42&e=0&s=x")
+				.exchange()
+				.expectStatus().isNotFound();
+
+		assertNull(received.get("GET /files/abc/abc.mp4"));
+	}
+
+	private static String token(String userId) {
+		return Jwts.builder().setSubject("user").claim("userId", userId)
+				.signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET))).compact();
+	}
+
+	private static HttpServer startJobService() {
+		try {
+			HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			server.createContext("/", exchange -> {
+				String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+				received.put(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath(),
+						exchange.getRequestHeaders().getFirst("X-User-Id") + "|" + body);
+				exchange.sendResponseHeaders(200, -1);
+				exchange.close();
+			});
+			server.start();
+			return server;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
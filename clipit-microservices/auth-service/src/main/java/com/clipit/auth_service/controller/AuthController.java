@@ -1,9 +1,16 @@
 package com.clipit.auth_service.controller;
 
+import com.clipit.auth_service.dto.AuthResponse;
+import com.clipit.auth_service.dto.RefreshRequest;
 import com.clipit.auth_service.entity.User;
 import com.clipit.auth_service.repository.UserRepository;
-import com.clipit.auth_service.service.JwtService;
+import com.clipit.auth_service.service.AuthUserDetails;
+import com.clipit.auth_service.service.InvalidRefreshTokenException;
+import com.clipit.auth_service.service.PasswordHashingService;
+import com.clipit.auth_service.service.RefreshTokenService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -19,29 +26,42 @@ public class AuthController {
 	@Autowired
 	private PasswordEncoder passwordEncoder;
 	@Autowired
-	private JwtService jwtService;
+	private RefreshTokenService refreshTokenService;
+	@Autowired
+	private PasswordHashingService passwordHashingService;
 	@Autowired
 	private AuthenticationManager authenticationManager;
 
 	@PostMapping("/register")
 	public String addNewUser(@RequestBody User user) {
-		user.setPassword(passwordEncoder.encode(user.getPassword()));
+		user.setPassword(passwordHashingService.run(() -> passwordEncoder.encode(user.getPassword())));
 		repository.save(user);
 		return "User added successfully";
 	}
 
 	@PostMapping("/login")
-	public String getToken(@RequestBody User user) {
-		Authentication authenticate = authenticationManager
-				.authenticate(new UsernamePasswordAuthenticationToken(user.getUsername(), user.getPassword()));
+	public AuthResponse getToken(@RequestBody User user) {
+		Authentication authenticate = passwordHashingService.run(() -> authenticationManager
+				.authenticate(new UsernamePasswordAuthenticationToken(user.getUsername(), user.getPassword())));
 
 		if (authenticate.isAuthenticated()) {
-			User fullUser = repository.findByUsername(user.getUsername())
-					.orElseThrow(() -> new RuntimeException("User not found"));
+			// Loaded by CustomUserDetailsService during authenticate(), no second lookup
+			AuthUserDetails principal = (AuthUserDetails) authenticate.getPrincipal();
 
-			return jwtService.generateToken(fullUser.getUsername(), fullUser.getId());
+			return refreshTokenService.issueTokens(principal.getUsername(), principal.getId());
 		} else {
 			throw new RuntimeException("Invalid access");
 		}
 	}
+
+	@PostMapping("/refresh")
+	public AuthResponse refreshToken(@RequestBody RefreshRequest request) {
+		return refreshTokenService.refresh(request.getRefreshToken());
+	}
+
+	// "Log in again", as opposed to a 500 the client may retry
+	@ExceptionHandler(InvalidRefreshTokenException.class)
+	public ResponseEntity<String> invalidRefreshToken(InvalidRefreshTokenException e) {
+		return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+	}
 }
@@ -0,0 +1,13 @@
+package com.clipit.auth_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuthResponse {
+    private String accessToken;  // JWT, short-lived
+    private String refreshToken; // opaque, exchanged at /auth/refresh without a password
+}
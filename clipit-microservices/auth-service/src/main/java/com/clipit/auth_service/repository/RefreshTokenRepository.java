@@ -0,0 +1,16 @@
+package com.clipit.auth_service.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.clipit.auth_service.entity.RefreshToken;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+	Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+	@Transactional
+	long deleteByExpiresAtBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,23 @@
+package com.clipit.auth_service.service;
+
+import java.util.ArrayList;
+
+import org.springframework.security.core.userdetails.User;
+
+/**
+ * Spring Security user that also carries our database id, so a login
+ * doesn't need a second lookup to put the id into the token.
+ */
+public class AuthUserDetails extends User {
+
+    private final Long id;
+
+    public AuthUserDetails(Long id, String username, String password) {
+        super(username, password, new ArrayList<>()); // Add roles here later
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
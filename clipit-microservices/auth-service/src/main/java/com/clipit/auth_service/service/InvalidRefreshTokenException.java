@@ -0,0 +1,12 @@
+package com.clipit.auth_service.service;
+
+/**
+ * The refresh token is unknown, already used or expired: the user has to log in again.
+ * AuthController answers it with 401, so clients can tell it apart from a server error.
+ */
+public class InvalidRefreshTokenException extends RuntimeException {
+
+    public InvalidRefreshTokenException(String message) {
+        super(message);
+    }
+}
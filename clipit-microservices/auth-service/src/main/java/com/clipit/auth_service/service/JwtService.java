@@ -6,6 +6,9 @@ import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value; // Import this
 import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
 import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
@@ -17,6 +20,18 @@ public class JwtService {
 	@Value("${jwt.secret}")
 	private String secret;
 
+	@Value("${jwt.access-expiration-minutes:30}")
+	private long accessExpirationMinutes;
+
+	// Decoded once, the HMAC key is immutable and thread-safe
+	private Key signKey;
+
+	@PostConstruct
+	public void init() {
+		byte[] keyBytes = Decoders.BASE64.decode(secret);
+		signKey = Keys.hmacShaKeyFor(keyBytes);
+	}
+
 	public String generateToken(String userName, Long userId) {
 		Map<String, Object> claims = new HashMap<>();
 		claims.put("userId", userId);
@@ -25,12 +40,7 @@ public class JwtService {
 
 	private String createToken(Map<String, Object> claims, String userName) {
 		return Jwts.builder().setClaims(claims).setSubject(userName).setIssuedAt(new Date(System.currentTimeMillis()))
-				.setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 30))
-				.signWith(getSignKey(), SignatureAlgorithm.HS256).compact();
-	}
-
-	private Key getSignKey() {
-		byte[] keyBytes = Decoders.BASE64.decode(secret);
-		return Keys.hmacShaKeyFor(keyBytes);
+				.setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * accessExpirationMinutes))
+				.signWith(signKey, SignatureAlgorithm.HS256).compact();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.clipit.auth_service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.clipit.auth_service.dto.AuthResponse;
+import com.clipit.auth_service.entity.RefreshToken;
+import com.clipit.auth_service.repository.RefreshTokenRepository;
+
+@Service
+public class RefreshTokenService {
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Value("${jwt.refresh-expiration-days:7}")
+    private long refreshExpirationDays;
+
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Issues a new access token + refresh token pair for an already authenticated user.
+     */
+    public AuthResponse issueTokens(String username, Long userId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(rawToken));
+        refreshToken.setUserId(userId);
+        refreshToken.setUsername(username);
+        refreshToken.setExpiresAt(LocalDateTime.now().plusDays(refreshExpirationDays));
+        refreshTokenRepository.save(refreshToken);
+
+        return new AuthResponse(jwtService.generateToken(username, userId), rawToken);
+    }
+
+    /**
+     * Exchanges a refresh token for a new pair. Tokens are single-use (rotated),
+     * and the lookup is a hash match, so no BCrypt is involved. An expired token is
+     * still deleted (no rollback) before the InvalidRefreshTokenException.
+     */
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public AuthResponse refresh(String rawToken) {
+        if (rawToken == null || rawToken.isEmpty()) {
+            throw new InvalidRefreshTokenException("Missing refresh token");
+        }
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new InvalidRefreshTokenException("Invalid refresh token"));
+
+        refreshTokenRepository.delete(refreshToken);
+
+        if (refreshToken.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new InvalidRefreshTokenException("Refresh token expired");
+        }
+
+        return issueTokens(refreshToken.getUsername(), refreshToken.getUserId());
+    }
+
+    // Cron expression: At minute 15 of every hour
+    @Scheduled(cron = "0 15 * * * *")
+    public void purgeExpiredTokens() {
+        long count = refreshTokenRepository.deleteByExpiresAtBefore(LocalDateTime.now());
+        System.out.println("[Cleanup] Purged " + count + " expired refresh tokens.");
+    }
+
+    private String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
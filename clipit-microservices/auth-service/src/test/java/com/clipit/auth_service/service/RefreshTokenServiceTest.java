@@ -0,0 +1,57 @@
+package com.clipit.auth_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.clipit.auth_service.entity.RefreshToken;
+import com.clipit.auth_service.repository.RefreshTokenRepository;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+	@Mock
+	private RefreshTokenRepository refreshTokenRepository;
+
+	@Mock
+	private JwtService jwtService;
+
+	@InjectMocks
+	private RefreshTokenService refreshTokenService;
+
+	@Test
+	void unknownTokenIsUnauthorized() {
+		when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.empty());
+
+		assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.refresh("unknown"));
+		verify(refreshTokenRepository, never()).delete(any());
+	}
+
+	@Test
+	void missingTokenIsUnauthorized() {
+		assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.refresh(null));
+	}
+
+	@Test
+	void expiredTokenIsDeletedAndUnauthorized() {
+		RefreshToken token = new RefreshToken();
+		token.setUserId(1L);
+		token.setUsername("alice");
+		token.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+		when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.of(token));
+
+		assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.refresh("expired"));
+		verify(refreshTokenRepository).delete(token);
+	}
+}
@@ -0,0 +1,80 @@
+#!/usr/bin/env bash
+# Fast-start builds for scale-out instances (job-service, api-gateway).
+#
+#   ./fast-start.sh build <module>   AOT-processed jar + CDS archive from a training run
+#   ./fast-start.sh run <module>     start the module with the fast-start profile, AOT code and CDS archive
+#   ./fast-start.sh bench <module>   compare plain vs fast-start startup (job-service also reports time-to-first-job)
+#
+# The training run refreshes the full context, so MySQL/Eureka and the usual env vars must be available.
+# Fast-start job-service uses ddl-auto=validate: run a regular instance once after schema changes.
+set -euo pipefail
+
+cd "$(dirname "$0")"
+
+COMMAND=${1:-}
+MODULE=${2:-job-service}
+VERSION=0.0.1-SNAPSHOT
+JAR=$MODULE/target/$MODULE-$VERSION.jar
+OUT=$MODULE/target/fast-start
+FAST_FLAGS=(-XX:SharedArchiveFile=$OUT/app.jsa -Dspring.aot.enabled=true -Dspring.profiles.active=fast-start)
+
+# Job used for the time-to-first-job benchmark, posted straight to job-service
+BENCH_URL=${BENCH_URL:-https://www.youtube.com/watch?v=jNQXAC9IVRw}
+
+build() {
+    mvn -B -q -Pfast-start -pl "$MODULE" -am package -DskipTests
+    rm -rf "$OUT"
+    java -Djarmode=tools -jar "$JAR" extract --destination "$OUT"
+
+    # Training run: load everything up to context refresh, then dump the loaded classes
+    java -XX:ArchiveClassesAtExit="$OUT/app.jsa" -Dspring.aot.enabled=true -Dspring.profiles.active=fast-start \
+        -Dspring.context.exit=onRefresh -jar "$OUT/$MODULE-$VERSION.jar"
+    echo "CDS archive written to $OUT/app.jsa"
+}
+
+run() {
+    exec java "${FAST_FLAGS[@]}" -jar "$OUT/$MODULE-$VERSION.jar"
+}
+
+# Starts the jar, waits for the ready line (and the first job for job-service), prints the timings
+measure() {
+    local label=$1; shift
+    local log
+    log=$(mktemp)
+    java "$@" > "$log" 2>&1 &
+    local pid=$!
+
+    until grep -q "Started .* in" "$log"; do
+        kill -0 $pid 2>/dev/null || { echo "$label: failed to start, see $log"; return 1; }
+        sleep 0.2
+    done
+    local ready
+    ready=$(grep -o "Started .* in [0-9.]* seconds.*" "$log" | head -1)
+
+    if [ "$MODULE" = "job-service" ]; then
+        curl -s -o /dev/null -X POST http://localhost:8082/jobs/start-job \
+            -H "X-User-Id: startup-bench" -H "Content-Type: application/json" \
+            -d "{\"youtubeUrl\":\"$BENCH_URL\",\"audioOnly\":true}"
+        until grep -q "\[Startup\] First job" "$log"; do sleep 0.2; done
+        echo "$label: $ready | $(grep -o "First job picked up .*" "$log")"
+    else
+        echo "$label: $ready"
+    fi
+
+    kill $pid
+    wait $pid 2>/dev/null || true
+    rm -f "$log"
+}
+
+bench() {
+    [ -f "$OUT/app.jsa" ] || build
+    measure "plain     " -jar "$JAR"
+    measure "fast-start" "${FAST_FLAGS[@]}" -jar "$OUT/$MODULE-$VERSION.jar"
+}
+
+case "$COMMAND" in
+    build) build ;;
+    run) run ;;
+    bench) bench ;;
+    *) echo "usage: $0 build|run|bench [job-service|api-gateway]"; exit 1 ;;
+esac
@@ -0,0 +1,39 @@
+package com.clipit.job_service.config;
+
+import org.apache.catalina.connector.Connector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Opens a second port for signed downloads (app.download.public-port), so multi-GB files go
+ * straight from this node to the client instead of through the gateway. It is the only port
+ * to expose publicly: FilesPortFilter lets nothing but /files/** through on it, while the main
+ * port, whose endpoints trust X-User-Id, stays reachable by the gateway only.
+ */
+@Configuration
+public class FilesConnectorConfig {
+
+    @Value("${app.download.public-port:8090}")
+    private int publicPort; // 0 = no separate port, signed URLs must then reach the main port
+
+    @Value("${app.download.public-address:}")
+    private String publicAddress; // blank = all interfaces
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> filesConnector() {
+        return factory -> {
+            if (publicPort <= 0) {
+                return;
+            }
+            Connector connector = new Connector(TomcatServletWebServerFactory.DEFAULT_PROTOCOL);
+            connector.setPort(publicPort);
+            if (!publicAddress.isEmpty()) {
+                connector.setProperty("address", publicAddress);
+            }
+            factory.addAdditionalTomcatConnectors(connector);
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package com.clipit.job_service.config;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * On the public downloads port, answers 404 to anything but GET/HEAD /files/**, so /jobs/**,
+ * actuator and swagger are only reachable on the main port.
+ */
+@Component
+public class FilesPortFilter extends OncePerRequestFilter {
+
+    @Value("${app.download.public-port:8090}")
+    private int publicPort;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (publicPort > 0 && request.getLocalPort() == publicPort && !isSignedDownload(request)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    // Servlet path is decoded and normalized, so /files/../jobs doesn't pass
+    private boolean isSignedDownload(HttpServletRequest request) {
+        String method = request.getMethod();
+        return ("GET".equals(method) || "HEAD".equals(method)) && request.getServletPath().startsWith("/files/");
+    }
+}
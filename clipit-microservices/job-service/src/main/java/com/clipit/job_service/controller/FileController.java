@@ -0,0 +1,49 @@
+package com.clipit.job_service.controller;
+
+import java.io.File;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.clipit.job_service.service.DownloadUrlService;
+
+/**
+ * Downloads via signed URLs, served on the public downloads port without going through the
+ * gateway: the signature from /jobs/download-url is the credential.
+ */
+@RestController
+@RequestMapping("/files")
+public class FileController {
+
+    @Autowired
+    private DownloadUrlService downloadUrlService;
+
+    @GetMapping("/{externalId}/{fileName:.+}")
+    public ResponseEntity<Resource> downloadSigned(
+            @PathVariable String externalId,
+            @PathVariable String fileName,
+            @RequestParam("u") String userId,
+            @RequestParam("e") long expires,
+            @RequestParam("s") String signature) {
+
+        File file = downloadUrlService.verify(externalId, fileName, userId, expires, signature);
+        if (file == null) {
+            return ResponseEntity.status(403).build();
+        }
+
+        // Resource bodies get Range support from Spring, so interrupted downloads can resume
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getName() + "\"")
+                .body(new FileSystemResource(file));
+    }
+}
@@ -1,30 +1,69 @@
 package com.clipit.job_service.controller;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.clipit.job_service.dto.FormatsResponse;
 import com.clipit.job_service.dto.JobRequest;
+import com.clipit.job_service.dto.PlatformStatus;
+import com.clipit.job_service.dto.ResourceUsage;
+import com.clipit.job_service.dto.StageLatency;
+import com.clipit.job_service.dto.UploadRequest;
+import com.clipit.job_service.dto.WebhookRequest;
 import com.clipit.job_service.entity.Job;
+import com.clipit.job_service.entity.JobEvent;
+import com.clipit.job_service.entity.JobStatus;
+import com.clipit.job_service.entity.Upload;
+import com.clipit.job_service.entity.Webhook;
+import com.clipit.job_service.entity.WebhookDelivery;
 import com.clipit.job_service.repository.JobRepository;
+import com.clipit.job_service.repository.WebhookRepository;
+import com.clipit.job_service.service.DownloadUrlService;
 import com.clipit.job_service.service.FormatService;
+import com.clipit.job_service.service.JobArchiveService;
+import com.clipit.job_service.service.JobLogService;
 import com.clipit.job_service.service.JobProcessorService;
+import com.clipit.job_service.service.JobScheduler;
+import com.clipit.job_service.service.PlatformGuard;
+import com.clipit.job_service.service.JobTimelineService;
+import com.clipit.job_service.service.JobWatchdogService;
+import com.clipit.job_service.service.PreviewService;
+import com.clipit.job_service.service.ResourceAccountingService;
+import com.clipit.job_service.service.UploadService;
+import com.clipit.job_service.service.WebhookService;
+import com.clipit.job_service.service.ZipExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @RestController
 @RequestMapping("/jobs")
@@ -33,11 +72,61 @@ public class JobController {
     @Autowired
     private JobRepository jobRepository;
 
+    @Autowired
+    private FormatService formatService;
+
+    @Autowired
+    private JobWatchdogService jobWatchdogService;
+
+    @Autowired
+    private PreviewService previewService;
+
+    @Autowired
+    private DownloadUrlService downloadUrlService;
+
+    @Autowired
+    private JobTimelineService jobTimelineService;
+
+    @Autowired
+    private JobLogService jobLogService;
+
+    @Autowired
+    private JobScheduler jobScheduler;
+
+    @Autowired
+    private PlatformGuard platformGuard;
+
+    @Autowired
+    private ZipExportService zipExportService;
+
+    @Autowired
+    private WebhookService webhookService;
+
+    @Autowired
+    private WebhookRepository webhookRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ResourceAccountingService resourceAccountingService;
+
+    @Autowired
+    private UploadService uploadService;
+
     @Autowired
     private JobProcessorService jobProcessorService;
-    
+
     @Autowired
-    private FormatService formatService;
+    private JobArchiveService jobArchiveService;
+
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    @Value("${app.stats.admin-user-ids:}")
+    private String adminUserIds; // comma-separated, may see node-wide stats
+
+    @Value("${app.storage.output-dir}")
+    private String outputDir;
 
  // 1. Start Job
     @PostMapping("/start-job")
@@ -51,20 +140,39 @@ public class JobController {
         job.setUserId(userId); // <--- Save the user
         job.setExternalId(externalId);
         job.setOriginalUrl(request.getYoutubeUrl());
-        job.setStatus("QUEUED");
+        job.setStatus(JobStatus.QUEUED);
+        if (request.getUploadId() != null) {
+            Upload upload = uploadService.getCompleted(userId, request.getUploadId());
+            if (upload == null) {
+                return ResponseEntity.badRequest().body("Upload not found or not complete: " + request.getUploadId());
+            }
+            uploadService.touch(upload);
+            job.setOriginalUrl(UploadService.SOURCE_PREFIX + request.getUploadId());
+        }
+        if (request.getCallbackUrl() != null && !request.getCallbackUrl().isEmpty()) {
+            try {
+                webhookService.validateUrl(request.getCallbackUrl());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+            job.setCallbackUrl(request.getCallbackUrl());
+            job.setCallbackSecret(request.getCallbackSecret());
+        }
+        jobScheduler.record(job, request);
         
         jobRepository.save(job);
+        jobTimelineService.recordTransition(job, null);
 
-        // Async processing
-        jobProcessorService.processJob(externalId, request);
+        // Costed and queued shortest-job-first, runs on a scheduler worker
+        jobScheduler.submit(externalId, request);
 
         return ResponseEntity.ok(externalId);
     }
 
-    // 2. Get My Jobs - Filter by User ID
+    // 2. Get My Jobs - Filter by User ID, archived ones included
     @GetMapping
     public ResponseEntity<List<Job>> getMyJobs(@RequestHeader("X-User-Id") String userId) {
-        List<Job> userJobs = jobRepository.findByUserId(userId);
+        List<Job> userJobs = jobArchiveService.findByUserId(userId);
         return ResponseEntity.ok(userJobs);
     }
 
@@ -75,16 +183,285 @@ public class JobController {
             @PathVariable String externalId) {
             
         // Use the secure find method
-        return jobRepository.findByExternalIdAndUserId(externalId, userId)
+        return jobArchiveService.findByExternalIdAndUserId(externalId, userId)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // 4. Cancel Job - kills the running yt-dlp/ffmpeg processes and removes partial files
+    @DeleteMapping("/{externalId}")
+    public ResponseEntity<String> cancelJob(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable String externalId) {
+
+        Job job = jobRepository.findByExternalIdAndUserId(externalId, userId).orElse(null);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        JobStatus status = job.getStatus();
+        if (status.isTerminal()) {
+            return ResponseEntity.status(409).body("Job already finished: " + status);
+        }
+
+        // Still QUEUED jobs see this status when a worker picks them up and exit right away
+        job.setStatus(JobStatus.CANCELLED);
+        jobRepository.save(job);
+
+        jobScheduler.remove(externalId);
+
+        // Running jobs record their own CANCELLED event when the worker unwinds
+        if (!jobWatchdogService.cancel(externalId, JobStatus.CANCELLED, "cancelled by user " + userId)) {
+            jobTimelineService.recordTransition(job, status);
+            webhookService.enqueue(job);
+        }
+
+        return ResponseEntity.ok(externalId);
+    }
+
+    // Runs a failed job again; downloads it already made (or started) on this instance are reused
+    @PostMapping("/{externalId}/retry")
+    public ResponseEntity<String> retryJob(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable String externalId) {
+
+        Job job = jobRepository.findByExternalIdAndUserId(externalId, userId).orElse(null);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.getStatus() != JobStatus.FAILED || job.getRequest() == null) {
+            return ResponseEntity.status(409).body("Only failed jobs can be retried");
+        }
+
+        JobRequest request;
+        try {
+            request = objectMapper.readValue(job.getRequest(), JobRequest.class);
+        } catch (Exception e) {
+            return ResponseEntity.status(409).body("Job request can't be read: " + e.getMessage());
+        }
+
+        job.setStatus(JobStatus.QUEUED);
+        job.setProgress(0);
+        jobScheduler.record(job, request);
+        jobRepository.save(job);
+        jobTimelineService.recordTransition(job, JobStatus.FAILED);
+
+        jobScheduler.submit(externalId, request);
+        return ResponseEntity.ok(externalId);
+    }
+
+    // 5. Timeline - every status change with timestamps, bytes and tool speed
+    @GetMapping("/{externalId}/timeline")
+    public ResponseEntity<List<JobEvent>> getJobTimeline(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable String externalId) {
+
+        if (jobArchiveService.findByExternalIdAndUserId(externalId, userId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(jobTimelineService.getTimeline(externalId));
+    }
+
+    // Last lines of yt-dlp/ffmpeg output (live while running, saved for failed jobs)
+    @GetMapping(value = "/{externalId}/log", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> getJobLog(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable String externalId) {
+
+        if (jobArchiveService.findByExternalIdAndUserId(externalId, userId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String log = jobLogService.getLog(externalId);
+        if (log == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(log);
+    }
+
+    // 6. Stage latency percentiles (all jobs, overall and per platform), admins only
+    @GetMapping("/stats/stages")
+    public ResponseEntity<List<StageLatency>> getStageLatencies(
+            @RequestHeader("X-User-Id") String userId,
+            @RequestParam(defaultValue = "24") int hours) {
+        if (!isAdmin(userId)) {
+            return ResponseEntity.status(403).build();
+        }
+        return ResponseEntity.ok(jobTimelineService.getStageLatencies(hours));
+    }
+
+    // CPU, memory, disk and network used by jobs, per user and per mode, in time windows.
+    // Admins see every user, everyone else only their own jobs.
+    @GetMapping("/stats/resources")
+    public ResponseEntity<List<ResourceUsage>> getResourceUsage(
+            @RequestHeader("X-User-Id") String userId,
+            @RequestParam(defaultValue = "24") int hours,
+            @RequestParam(defaultValue = "0") int windowMinutes) {
+        return ResponseEntity.ok(resourceAccountingService.getUsage(hours, windowMinutes, isAdmin(userId) ? null : userId));
+    }
+
+    // Circuit breaker state, running jobs and recent success rate per platform, admins only
+    @GetMapping("/stats/platforms")
+    public ResponseEntity<List<PlatformStatus>> getPlatformStatus(@RequestHeader("X-User-Id") String userId) {
+        if (!isAdmin(userId)) {
+            return ResponseEntity.status(403).build();
+        }
+        return ResponseEntity.ok(platformGuard.getStatus());
+    }
+
+    private boolean isAdmin(String userId) {
+        return Arrays.stream(adminUserIds.split(",")).map(String::trim).anyMatch(id -> !id.isEmpty() && id.equals(userId));
+    }
+
+    // Uploads - a local file as job source: declare it, PUT the bytes in chunks, then start-job with its uploadId
+    @PostMapping("/uploads")
+    public ResponseEntity<?> createUpload(
+            @RequestHeader("X-User-Id") String userId,
+            @RequestBody UploadRequest request) {
+        try {
+            return ResponseEntity.ok(uploadService.create(userId, request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // receivedBytes is the offset to continue an interrupted upload from
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<Upload> getUpload(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable String uploadId) {
+        Upload upload = uploadService.get(userId, uploadId);
+        if (upload == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(upload);
+    }
+
+    // Raw bytes (application/octet-stream), streamed to disk; X-Chunk-Sha256 makes the chunk all or nothing
+    @PutMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> uploadChunk(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable String uploadId,
+            @RequestParam long offset,
+            @RequestHeader(value = "X-Chunk-Sha256", required = false) String chunkSha256,
+            InputStream body) throws IOException {
+        Upload upload = uploadService.get(userId, uploadId);
+        if (upload == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(uploadService.writeChunk(upload, offset, body, chunkSha256));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Webhooks - every finished job of the user is POSTed to each registered URL
+    @PostMapping("/webhooks")
+    public ResponseEntity<?> registerWebhook(
+            @RequestHeader("X-User-Id") String userId,
+            @RequestBody WebhookRequest request) {
+        try {
+            return ResponseEntity.ok(webhookService.register(userId, request.getUrl()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/webhooks")
+    public ResponseEntity<List<Webhook>> getWebhooks(@RequestHeader("X-User-Id") String userId) {
+        return ResponseEntity.ok(webhookRepository.findByUserId(userId));
+    }
+
+    @DeleteMapping("/webhooks/{id}")
+    public ResponseEntity<Void> deleteWebhook(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable Long id) {
+        Webhook webhook = webhookRepository.findByIdAndUserId(id, userId).orElse(null);
+        if (webhook == null) {
+            return ResponseEntity.notFound().build();
+        }
+        webhookRepository.delete(webhook);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Events that ran out of delivery attempts
+    @GetMapping("/webhooks/dead-letters")
+    public ResponseEntity<List<WebhookDelivery>> getDeadLetters(@RequestHeader("X-User-Id") String userId) {
+        return ResponseEntity.ok(webhookService.getDeadLetters(userId));
+    }
+
+    @PostMapping("/webhooks/dead-letters/{id}/retry")
+    public ResponseEntity<Void> retryDeadLetter(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable Long id) {
+        if (!webhookService.retry(userId, id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    // Several completed outputs as one uncompressed ZIP, built while streaming; Range lets clients resume
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportJobs(
+            @RequestHeader("X-User-Id") String userId,
+            @RequestParam List<String> ids,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange) {
+
+        ZipExportService.ZipExport export;
+        try {
+            export = zipExportService.prepare(userId, ids);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+
+        long total = export.getTotalSize();
+        long start = 0;
+        long end = total - 1;
+        boolean partial = false;
+
+        // Single ranges only, and only if the archive is still the one the client started
+        if (range != null && (ifRange == null || ifRange.equals(export.getEtag()))) {
+            Matcher matcher = RANGE_PATTERN.matcher(range.trim());
+            if (matcher.matches() && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+                if (matcher.group(1).isEmpty()) {
+                    start = Math.max(0, total - Long.parseLong(matcher.group(2))); // bytes=-N, the last N bytes
+                } else {
+                    start = Long.parseLong(matcher.group(1));
+                    if (!matcher.group(2).isEmpty()) {
+                        end = Math.min(end, Long.parseLong(matcher.group(2)));
+                    }
+                }
+                if (start > end) {
+                    return ResponseEntity.status(416).header(HttpHeaders.CONTENT_RANGE, "bytes */" + total).build();
+                }
+                partial = true;
+            }
+        }
+
+        long from = start;
+        long to = end;
+        StreamingResponseBody body = out -> zipExportService.write(export, out, from, to);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(partial ? 206 : 200)
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"clipit-export.zip\"")
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .eTag(export.getEtag())
+                .contentLength(end - start + 1);
+        if (partial) {
+            response.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + total);
+        }
+        return response.body(body);
+    }
+
     @GetMapping("/download/{externalId}")
     public ResponseEntity<Resource> downloadFile(@PathVariable String externalId) {
         Job job = jobRepository.findByExternalId(externalId).orElse(null);
 
-        if (job == null || !"COMPLETED".equals(job.getStatus()) || job.getFilePath() == null) {
+        if (job == null || job.getStatus() != JobStatus.COMPLETED || job.getFilePath() == null) {
             return ResponseEntity.notFound().build();
         }
 
@@ -101,13 +478,126 @@ public class JobController {
                 .body(resource);
     }
     
+    // Short-lived signed URL for downloading straight from this node instead of through the gateway
+    @GetMapping("/download-url/{externalId}")
+    public ResponseEntity<String> getDownloadUrl(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable String externalId) {
+
+        Job job = jobRepository.findByExternalIdAndUserId(externalId, userId).orElse(null);
+        if (job == null || job.getStatus() != JobStatus.COMPLETED || job.getFilePath() == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // HLS outputs are a playlist + segments, served by /jobs/hls instead
+        if (job.getFilePath().endsWith(JobProcessorService.HLS_PLAYLIST)) {
+            return ResponseEntity.badRequest().body("HLS jobs are served via /jobs/hls/" + externalId);
+        }
+
+        return ResponseEntity.ok(downloadUrlService.createSignedUrl(job));
+    }
+
+    // HLS playlist + segments, available while the job is still PROCESSING
+    @GetMapping("/hls/{externalId}/{fileName}")
+    public ResponseEntity<Resource> getHlsFile(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable String externalId,
+            @PathVariable String fileName) throws IOException {
+
+        // Only the playlist and our own segment names, never a path
+        if (!fileName.equals(JobProcessorService.HLS_PLAYLIST) && !fileName.matches("segment_\\d+\\.ts")) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Job job = jobRepository.findByExternalIdAndUserId(externalId, userId).orElse(null);
+        if (job == null || job.getStatus() == JobStatus.FAILED) {
+            return ResponseEntity.notFound().build();
+        }
+
+        File hlsDir = new File(outputDir + externalId);
+        File playlist = new File(hlsDir, JobProcessorService.HLS_PLAYLIST);
+        if (!playlist.exists()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        if (fileName.equals(JobProcessorService.HLS_PLAYLIST)) {
+            // Playlist keeps growing until ffmpeg writes #EXT-X-ENDLIST
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/vnd.apple.mpegurl"))
+                    .cacheControl(CacheControl.noCache())
+                    .body(new FileSystemResource(playlist));
+        }
+
+        // ffmpeg only lists a segment once it is fully written, so anything not in
+        // the playlist yet is still being encoded
+        File segment = new File(hlsDir, fileName);
+        String playlistContent = Files.readString(playlist.toPath());
+        if (!segment.exists() || !playlistContent.contains(fileName)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("video/mp2t"))
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable())
+                .body(new FileSystemResource(segment));
+    }
+
     @GetMapping("/formats")
-    public ResponseEntity<?> getFormats(@RequestParam String url) {
+    public ResponseEntity<?> getFormats(
+            @RequestHeader(value = "X-User-Id", required = false) String userId,
+            @RequestParam String url) {
         try {
             FormatsResponse formats = formatService.getFormats(url);
+
+            // Start downloading the likely picks while the user chooses options
+            try {
+                jobProcessorService.prefetch(userId != null ? userId : "", url, formats);
+            } catch (Exception e) {
+                System.err.println("[Prefetch] " + e.getMessage());
+            }
             return ResponseEntity.ok(formats);
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Error fetching formats: " + e.getMessage());
         }
     }
+
+    // Low-res proxy + filmstrip for choosing trim points (cached per URL). Generated on the
+    // preview pool, so the request thread is released while it runs.
+    @GetMapping("/preview")
+    public CompletableFuture<ResponseEntity<?>> getPreview(@RequestParam String url) {
+        try {
+            return previewService.getPreview(url)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(this::previewError);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(previewError(e));
+        }
+    }
+
+    private ResponseEntity<?> previewError(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof RejectedExecutionException) {
+            return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, "30")
+                    .body("Too many previews being generated, try again shortly");
+        }
+        if (cause instanceof IllegalArgumentException) {
+            return ResponseEntity.status(422).body(cause.getMessage());
+        }
+        return ResponseEntity.status(500).body("Error creating preview: " + cause.getMessage());
+    }
+
+    @GetMapping("/preview/{previewId}/{fileName}")
+    public ResponseEntity<Resource> getPreviewFile(@PathVariable String previewId, @PathVariable String fileName) {
+        File file = previewService.getPreviewFile(previewId, fileName);
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // Range requests are handled by Spring for Resource bodies, so the player can seek
+        MediaType type = fileName.equals(PreviewService.PROXY_FILE) ? MediaType.parseMediaType("video/mp4") : MediaType.IMAGE_JPEG;
+        return ResponseEntity.ok()
+                .contentType(type)
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.DAYS).cachePrivate())
+                .body(new FileSystemResource(file));
+    }
 }
\ No newline at end of file
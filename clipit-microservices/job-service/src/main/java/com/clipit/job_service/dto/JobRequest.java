@@ -5,6 +5,9 @@ import lombok.Data;
 @Data
 public class JobRequest {
     private String youtubeUrl;
+
+    // Instead of youtubeUrl: a completed upload (POST /jobs/uploads)
+    private String uploadId;
     
     // Format ID selected by user (audio will be automatically selected as best)
     private String videoId;
@@ -17,6 +20,13 @@ public class JobRequest {
     private boolean isAudioOnly = false;  // Default false
     private boolean isVideoOnly = false;  // Default false
 
+    // Streaming (Optional) - write HLS segments + playlist instead of a single file
+    private boolean isHls = false;        // Default false
+
+
+    // Webhook (Optional) - POSTed to when the job completes, fails or is cancelled
+    private String callbackUrl;
+    private String callbackSecret; // HMAC key for the signature, defaults to the service-wide secret
 
     // Metadata for processing
     private String resolution; // e.g., "1920x1080"
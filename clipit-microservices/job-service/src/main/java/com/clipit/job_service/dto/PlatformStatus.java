@@ -0,0 +1,19 @@
+package com.clipit.job_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PlatformStatus {
+    private String platform;     // youtube, tiktok, x, ...
+    private String breaker;      // CLOSED, OPEN, HALF_OPEN
+    private int runningJobs;
+    private int maxConcurrent;
+    private double successRate;  // over the last `attempts` downloads
+    private int attempts;
+    private String lastError;    // error class of the latest failure
+    private Long openUntil;      // epoch millis, only while OPEN
+}
@@ -0,0 +1,19 @@
+package com.clipit.job_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PreviewResponse {
+    private String previewId;
+    private double duration;       // seconds
+
+    // Filmstrip: one frame every spriteInterval seconds, laid out row by row
+    private int spriteInterval;
+    private int spriteColumns;
+    private int spriteRows;
+    private int frameWidth;
+}
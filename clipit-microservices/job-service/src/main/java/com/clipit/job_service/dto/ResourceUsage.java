@@ -0,0 +1,24 @@
+package com.clipit.job_service.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResourceUsage {
+    private LocalDateTime windowStart;
+    private String groupBy;       // user, mode
+    private String key;           // user id, or audio / video / merge
+    private int jobs;
+
+    // Totals of the jobs' yt-dlp/ffmpeg process trees
+    private double cpuSeconds;
+    private long maxPeakRssBytes; // largest single-job peak
+    private long readBytes;       // storage
+    private long writeBytes;      // storage
+    private long networkBytes;    // downloaded by yt-dlp
+}
@@ -0,0 +1,14 @@
+package com.clipit.job_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SizeEstimate {
+    private long sourceBytes;       // sum of the selected streams
+    private double durationSeconds; // full source duration
+    private String audioCodec;      // ffmpeg name (aac, opus, mp3), null if unknown or no audio
+}
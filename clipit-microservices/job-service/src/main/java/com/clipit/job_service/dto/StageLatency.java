@@ -0,0 +1,19 @@
+package com.clipit.job_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StageLatency {
+    private String platform; // "all" for every platform combined
+    private String stage;    // QUEUED, DOWNLOADING, PROCESSING
+    private int count;
+
+    // Seconds spent in the stage
+    private double p50;
+    private double p90;
+    private double p99;
+}
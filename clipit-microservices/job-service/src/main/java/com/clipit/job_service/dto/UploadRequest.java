@@ -0,0 +1,10 @@
+package com.clipit.job_service.dto;
+
+import lombok.Data;
+
+@Data
+public class UploadRequest {
+    private String fileName;
+    private long size;     // total bytes, chunks past it are rejected
+    private String sha256; // optional hex digest, checked once the last chunk arrives
+}
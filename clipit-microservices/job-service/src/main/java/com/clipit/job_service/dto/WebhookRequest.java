@@ -0,0 +1,8 @@
+package com.clipit.job_service.dto;
+
+import lombok.Data;
+
+@Data
+public class WebhookRequest {
+    private String url; // http(s) endpoint that receives {"events": [...]} batches
+}
@@ -0,0 +1,99 @@
+package com.clipit.job_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * A finished job moved off the hot table after the retention window. Keeps what history
+ * shows; what is only needed to run the job (request, instance, callback secret) is dropped.
+ */
+@Entity
+@Table(name = "jobs_archive", indexes = {
+		@Index(name = "idx_jobs_archive_external_id", columnList = "externalId", unique = true),
+		@Index(name = "idx_jobs_archive_user_id_created_at", columnList = "user_id,createdAt") })
+@Data
+@NoArgsConstructor
+public class ArchivedJob {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	private Long jobId; // id it had on the hot table
+
+	@Column(name = "user_id", nullable = false)
+	private String userId;
+
+	@Column(nullable = false)
+	private String externalId;
+
+	@Column(length = 1000)
+	private String originalUrl;
+
+	@Convert(converter = JobStatusConverter.class)
+	@Column(name = "status_code", columnDefinition = "TINYINT")
+	private JobStatus status;
+
+	private int progress;
+
+	private String filePath;
+
+	@Column(length = 1000)
+	private String callbackUrl;
+
+	private String mode;
+
+	private Long cpuMillis;
+	private Long peakRssBytes;
+	private Long readBytes;
+	private Long writeBytes;
+	private Long networkBytes;
+
+	private LocalDateTime createdAt;
+
+	private LocalDateTime archivedAt;
+
+	public static ArchivedJob from(Job job) {
+		ArchivedJob archived = new ArchivedJob();
+		archived.setJobId(job.getId());
+		archived.setUserId(job.getUserId());
+		archived.setExternalId(job.getExternalId());
+		archived.setOriginalUrl(job.getOriginalUrl());
+		archived.setStatus(job.getStatus());
+		archived.setProgress(job.getProgress());
+		archived.setFilePath(job.getFilePath());
+		archived.setCallbackUrl(job.getCallbackUrl());
+		archived.setMode(job.getMode());
+		archived.setCpuMillis(job.getCpuMillis());
+		archived.setPeakRssBytes(job.getPeakRssBytes());
+		archived.setReadBytes(job.getReadBytes());
+		archived.setWriteBytes(job.getWriteBytes());
+		archived.setNetworkBytes(job.getNetworkBytes());
+		archived.setCreatedAt(job.getCreatedAt());
+		archived.setArchivedAt(LocalDateTime.now());
+		return archived;
+	}
+
+	// Same shape as a hot job, so history endpoints return one type
+	public Job toJob() {
+		Job job = new Job();
+		job.setId(jobId);
+		job.setUserId(userId);
+		job.setExternalId(externalId);
+		job.setOriginalUrl(originalUrl);
+		job.restoreStatus(status);
+		job.setProgress(progress);
+		job.setFilePath(filePath);
+		job.setCallbackUrl(callbackUrl);
+		job.setMode(mode);
+		job.setCpuMillis(cpuMillis);
+		job.setPeakRssBytes(peakRssBytes);
+		job.setReadBytes(readBytes);
+		job.setWriteBytes(writeBytes);
+		job.setNetworkBytes(networkBytes);
+		job.setCreatedAt(createdAt);
+		return job;
+	}
+}
@@ -1,12 +1,21 @@
 package com.clipit.job_service.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
+/**
+ * A job on the hot table. Terminal jobs past app.archive.retention-days move to jobs_archive
+ * (see JobArchiveService); read history through that service to see both.
+ */
 @Entity
-@Table(name = "jobs")
+@Table(name = "jobs", indexes = {
+		@Index(name = "idx_jobs_external_id", columnList = "externalId"),
+		@Index(name = "idx_jobs_user_id_created_at", columnList = "user_id,createdAt"),
+		@Index(name = "idx_jobs_status_created_at", columnList = "status_code,createdAt") })
 @Data
 @NoArgsConstructor
 public class Job {
@@ -23,17 +32,56 @@ public class Job {
 	@Column(length = 1000)
 	private String originalUrl;
 
-	private String status; // QUEUED, DOWNLOADING, PROCESSING, COMPLETED, FAILED
+	// Stored as the JobStatus code
+	@Convert(converter = JobStatusConverter.class)
+	@Column(name = "status_code", columnDefinition = "TINYINT")
+	private JobStatus status;
 
 	@Column(name = "progress")
     private int progress = 0;
 	
 	private String filePath; // Path to the final result
 
+	@Column(length = 1000)
+	private String callbackUrl; // optional webhook for this job only
+
+	@JsonIgnore
+	private String callbackSecret;
+
+	@JsonIgnore
+	@Lob
+	@Column(columnDefinition = "TEXT")
+	private String request; // the JobRequest as JSON, to re-queue the job after a restart or for a retry
+
+	@JsonIgnore
+	private String instanceId; // job-service instance whose temp-dir holds the job's downloads
+
+	private String mode; // audio, video, merge
+
+	// Resources used by the job's yt-dlp/ffmpeg processes, sampled from /proc (null if not measured)
+	private Long cpuMillis;
+	private Long peakRssBytes;
+	private Long readBytes;
+	private Long writeBytes;
+	private Long networkBytes;
+
 	private LocalDateTime createdAt;
 
 	@PrePersist
 	public void prePersist() {
 		this.createdAt = LocalDateTime.now();
 	}
+
+	// Only transitions JobStatus allows, see JobStatus.canMoveTo
+	public void setStatus(JobStatus status) {
+		if (!JobStatus.isAllowed(this.status, status)) {
+			throw new IllegalStateException("Job " + externalId + " can't go from " + this.status + " to " + status);
+		}
+		this.status = status;
+	}
+
+	// Rebuilding a stored job (ArchivedJob.toJob) isn't a transition
+	void restoreStatus(JobStatus status) {
+		this.status = status;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.clipit.job_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Append-only record of a job entering a status. The bytes and tool speed describe
+ * the stage that just ended (previousStatus), e.g. download size and yt-dlp speed.
+ */
+@Entity
+@Table(name = "job_events", indexes = {
+		@Index(name = "idx_job_events_external_id", columnList = "externalId"),
+		@Index(name = "idx_job_events_created_at", columnList = "createdAt") })
+@Data
+@NoArgsConstructor
+public class JobEvent {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(nullable = false)
+	private String externalId;
+
+	@Column(nullable = false)
+	private String status;
+
+	private String previousStatus;
+
+	private String platform; // youtube, tiktok, x, ... (host of the source URL)
+
+	private Long bytes;
+
+	private String toolSpeed; // as reported, e.g. "2.31MiB/s" (yt-dlp) or "3.2x" (ffmpeg)
+
+	private LocalDateTime createdAt;
+
+	@PrePersist
+	public void prePersist() {
+		this.createdAt = LocalDateTime.now();
+	}
+}
@@ -0,0 +1,40 @@
+package com.clipit.job_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Last lines of yt-dlp/ffmpeg output of a failed job, kept for troubleshooting.
+ */
+@Entity
+@Table(name = "job_logs", indexes = {
+		@Index(name = "idx_job_logs_external_id", columnList = "externalId", unique = true),
+		@Index(name = "idx_job_logs_created_at", columnList = "createdAt") })
+@Data
+@NoArgsConstructor
+public class JobLog {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(nullable = false)
+	private String externalId;
+
+	@Lob
+	@Column(columnDefinition = "MEDIUMTEXT")
+	private String output;
+
+	private int lineCount;
+
+	private int droppedLines; // older lines that fell out of the ring buffer
+
+	private LocalDateTime createdAt;
+
+	@PrePersist
+	public void prePersist() {
+		this.createdAt = LocalDateTime.now();
+	}
+}
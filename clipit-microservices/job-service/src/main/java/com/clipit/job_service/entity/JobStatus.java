@@ -0,0 +1,60 @@
+package com.clipit.job_service.entity;
+
+import java.util.Set;
+
+/**
+ * Job lifecycle. Stored as a one-byte code (see JobStatusConverter); codes must never be reused.
+ */
+public enum JobStatus {
+    QUEUED(1),
+    DOWNLOADING(2),
+    PROCESSING(3),
+    COMPLETED(4),
+    FAILED(5),
+    CANCELLED(6);
+
+    private final int code;
+
+    JobStatus(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED || this == CANCELLED;
+    }
+
+    /**
+     * Staying in a status is always allowed (progress updates). Running jobs go back to QUEUED
+     * when a restart re-queues them, FAILED ones when they are retried.
+     */
+    public boolean canMoveTo(JobStatus next) {
+        if (next == this) {
+            return true;
+        }
+        switch (this) {
+            case QUEUED: return Set.of(DOWNLOADING, FAILED, CANCELLED).contains(next);
+            case DOWNLOADING: return Set.of(QUEUED, PROCESSING, COMPLETED, FAILED, CANCELLED).contains(next);
+            case PROCESSING: return Set.of(QUEUED, COMPLETED, FAILED, CANCELLED).contains(next);
+            case FAILED: return next == QUEUED;
+            default: return false;
+        }
+    }
+
+    // A new job (null) can only be QUEUED
+    public static boolean isAllowed(JobStatus from, JobStatus to) {
+        return from == null ? to == QUEUED : to != null && from.canMoveTo(to);
+    }
+
+    public static JobStatus fromCode(int code) {
+        for (JobStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown job status code " + code);
+    }
+}
@@ -0,0 +1,22 @@
+package com.clipit.job_service.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores a JobStatus as its code, so the column is a TINYINT that keeps working if constants
+ * are renamed or reordered.
+ */
+@Converter
+public class JobStatusConverter implements AttributeConverter<JobStatus, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(JobStatus status) {
+        return status == null ? null : status.getCode();
+    }
+
+    @Override
+    public JobStatus convertToEntityAttribute(Integer code) {
+        return code == null ? null : JobStatus.fromCode(code);
+    }
+}
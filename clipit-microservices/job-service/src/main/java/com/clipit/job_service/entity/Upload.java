@@ -0,0 +1,48 @@
+package com.clipit.job_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * A file a user uploads (in chunks) into temp-dir, to be used as a job source instead of a URL.
+ */
+@Entity
+@Table(name = "uploads", indexes = {
+		@Index(name = "idx_uploads_upload_id", columnList = "uploadId", unique = true),
+		@Index(name = "idx_uploads_updated_at", columnList = "updatedAt") })
+@Data
+@NoArgsConstructor
+public class Upload {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(nullable = false)
+	private String uploadId;
+
+	@Column(nullable = false)
+	private String userId;
+
+	private String fileName;
+
+	private long size; // declared up front, enforced while receiving
+
+	private String sha256; // expected hex digest of the whole file, optional
+
+	private long receivedBytes; // where the next chunk starts
+
+	private String status; // UPLOADING, COMPLETE, FAILED
+
+	private LocalDateTime createdAt;
+
+	private LocalDateTime updatedAt; // last chunk, for expiring abandoned uploads
+
+	@PrePersist
+	public void prePersist() {
+		this.createdAt = LocalDateTime.now();
+		this.updatedAt = this.createdAt;
+	}
+}
@@ -0,0 +1,36 @@
+package com.clipit.job_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * A user's standing webhook: every job of theirs that finishes is POSTed here.
+ */
+@Entity
+@Table(name = "webhooks", indexes = @Index(name = "idx_webhooks_user_id", columnList = "userId"))
+@Data
+@NoArgsConstructor
+public class Webhook {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(nullable = false)
+	private String userId;
+
+	@Column(nullable = false, length = 1000)
+	private String url;
+
+	@Column(nullable = false)
+	private String secret; // HMAC key for X-ClipIt-Signature, generated on registration
+
+	private LocalDateTime createdAt;
+
+	@PrePersist
+	public void prePersist() {
+		this.createdAt = LocalDateTime.now();
+	}
+}
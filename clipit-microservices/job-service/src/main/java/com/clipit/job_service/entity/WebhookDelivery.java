@@ -0,0 +1,59 @@
+package com.clipit.job_service.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Outbox row: one event for one endpoint. Written in the same step as the status change,
+ * sent (batched per endpoint) by WebhookService, kept as DEAD after the last failed attempt.
+ */
+@Entity
+@Table(name = "webhook_outbox", indexes = {
+		@Index(name = "idx_webhook_outbox_status_next", columnList = "status,nextAttemptAt"),
+		@Index(name = "idx_webhook_outbox_user_id", columnList = "userId") })
+@Data
+@NoArgsConstructor
+public class WebhookDelivery {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(nullable = false)
+	private String userId;
+
+	@Column(nullable = false)
+	private String externalId;
+
+	@Column(nullable = false, length = 1000)
+	private String url;
+
+	@JsonIgnore
+	private String secret;
+
+	@Lob
+	@Column(columnDefinition = "TEXT", nullable = false)
+	private String payload; // JSON event, sent inside {"events": [...]}
+
+	private String status; // PENDING, DELIVERED, DEAD
+
+	private int attempts;
+
+	private LocalDateTime nextAttemptAt;
+
+	@Column(length = 1000)
+	private String lastError;
+
+	private LocalDateTime createdAt;
+
+	private LocalDateTime deliveredAt;
+
+	@PrePersist
+	public void prePersist() {
+		this.createdAt = LocalDateTime.now();
+	}
+}
@@ -0,0 +1,38 @@
+package com.clipit.job_service.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A job as a graph of stages, given by its last stage (whose output is the job's output).
+ * A stage used as input by several others runs once.
+ */
+public class Pipeline {
+
+    private final Stage output;
+
+    public Pipeline(Stage output) {
+        this.output = output;
+    }
+
+    public Stage getOutput() {
+        return output;
+    }
+
+    // Every stage of the graph, inputs before the stages that use them
+    public List<Stage> getStages() {
+        List<Stage> stages = new ArrayList<>();
+        collect(output, stages);
+        return stages;
+    }
+
+    private void collect(Stage stage, List<Stage> stages) {
+        if (stages.contains(stage)) {
+            return;
+        }
+        for (Stage input : stage.getInputs()) {
+            collect(input, stages);
+        }
+        stages.add(stage);
+    }
+}
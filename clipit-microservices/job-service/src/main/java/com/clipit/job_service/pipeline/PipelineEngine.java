@@ -0,0 +1,277 @@
+package com.clipit.job_service.pipeline;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs pipelines: every stage starts as soon as its inputs are done, on the executor for its
+ * resource, so independent stages (e.g. the video and audio downloads of a merge) run at the
+ * same time. A failed or null stage skips the stages that depend on it, but the others are left
+ * to finish, so a completed download stays in temp-dir for a retry. Shared stages (see
+ * Stage.shared) run once for all jobs that need them at the same time.
+ */
+@Service
+public class PipelineEngine {
+
+    public interface Listener {
+        boolean isCancelled();
+
+        // Right before a stage's action runs
+        void onStart(Stage stage);
+
+        // Every second while a stage waits for a thread or for another job's run of it
+        void onWaiting(Stage stage);
+    }
+
+    // How long a cancelled run waits for its running stages to stop (their processes are killed)
+    private static final long CANCEL_WAIT_MILLIS = 60_000;
+
+    @Value("${app.pipeline.network-threads:0}")
+    private int networkThreads; // 0 = twice app.scheduler.workers, merge jobs download two streams
+
+    @Value("${app.pipeline.cpu-threads:0}")
+    private int cpuThreads; // 0 = app.scheduler.workers
+
+    @Value("${app.pipeline.io-threads:4}")
+    private int ioThreads;
+
+    @Value("${app.scheduler.workers:8}")
+    private int workers;
+
+    private final Map<Stage.Resource, ExecutorService> executors = new EnumMap<>(Stage.Resource.class);
+
+    // share key -> the run other jobs are waiting on, guarded by itself
+    private final Map<String, SharedRun> inFlight = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        executors.put(Stage.Resource.NETWORK, Executors.newFixedThreadPool(networkThreads > 0 ? networkThreads : workers * 2));
+        executors.put(Stage.Resource.CPU, Executors.newFixedThreadPool(cpuThreads > 0 ? cpuThreads : workers));
+        executors.put(Stage.Resource.IO, Executors.newFixedThreadPool(ioThreads));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executors.values().forEach(ExecutorService::shutdown);
+    }
+
+    /**
+     * Runs the pipeline on the engine's executors and blocks until every stage has finished.
+     * Returns the output of the last stage, null if a stage returned null, or throws the first
+     * error. Throws CancellationException once the listener reports a cancel, after the stages
+     * that were already running have stopped, so the caller can clean up their files.
+     */
+    public String run(Pipeline pipeline, Listener listener) throws Exception {
+        Run run = new Run(listener);
+        Map<Stage, CompletableFuture<String>> futures = new HashMap<>();
+
+        for (Stage stage : pipeline.getStages()) {
+            List<CompletableFuture<String>> inputs = stage.getInputs().stream().map(futures::get).toList();
+            futures.put(stage, CompletableFuture.allOf(inputs.toArray(new CompletableFuture[0])).thenCompose(done -> {
+                List<String> outputs = inputs.stream().map(CompletableFuture::join).toList();
+                return outputs.contains(null) ? CompletableFuture.completedFuture(null) : run.start(stage, outputs);
+            }));
+        }
+
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]));
+        while (true) {
+            try {
+                all.get(1, TimeUnit.SECONDS);
+                break;
+            } catch (ExecutionException e) {
+                break; // everything settled, the output future has the error
+            } catch (TimeoutException e) {
+                if (listener.isCancelled()) {
+                    run.cancelled = true;
+                    futures.values().forEach(future -> future.cancel(false));
+                    run.awaitTasks();
+                    throw new CancellationException("Pipeline cancelled");
+                }
+                run.waiting.forEach(listener::onWaiting);
+            }
+        }
+
+        try {
+            return futures.get(pipeline.getOutput()).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private class Run {
+        final Listener listener;
+        final Set<Stage> waiting = ConcurrentHashMap.newKeySet();
+        // Every action handed to an executor, so a cancel can wait for them
+        final List<CompletableFuture<?>> tasks = new CopyOnWriteArrayList<>();
+        // Set on cancel; the listener stops reporting it once the job is unregistered
+        volatile boolean cancelled;
+
+        Run(Listener listener) {
+            this.listener = listener;
+        }
+
+        boolean isCancelled() {
+            return cancelled || listener.isCancelled();
+        }
+
+        <T> CompletableFuture<T> track(CompletableFuture<T> task) {
+            tasks.add(task);
+            return task;
+        }
+
+        // Until every task has settled, including any submitted while waiting (they stop right away)
+        void awaitTasks() throws InterruptedException {
+            long deadline = System.currentTimeMillis() + CANCEL_WAIT_MILLIS;
+            int settled = -1;
+            while (settled != tasks.size()) {
+                List<CompletableFuture<?>> snapshot = List.copyOf(tasks);
+                try {
+                    CompletableFuture.allOf(snapshot.toArray(new CompletableFuture[0])).handle((done, error) -> null)
+                            .get(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException | ExecutionException e) {
+                    System.err.println("[Pipeline] Stages still running " + CANCEL_WAIT_MILLIS / 1000 + "s after cancel");
+                    return;
+                }
+                settled = snapshot.size();
+            }
+        }
+
+        CompletableFuture<String> start(Stage stage, List<String> inputs) {
+            ExecutorService executor = executors.get(stage.getResource());
+            waiting.add(stage);
+            if (stage.getShareKey() == null) {
+                return track(CompletableFuture.supplyAsync(() -> execute(stage, inputs), executor));
+            }
+
+            CompletableFuture<String> linked = new CompletableFuture<>();
+            boolean producer;
+            synchronized (inFlight) {
+                SharedRun shared = inFlight.get(stage.getShareKey());
+                producer = shared == null;
+                if (producer) {
+                    inFlight.put(stage.getShareKey(), new SharedRun(stage.getShareBase()));
+                } else {
+                    shared.subscribers.add(new Subscriber(stage.getShareBase(), linked, this));
+                }
+            }
+
+            if (!producer) {
+                System.out.println("[Pipeline] " + stage + " waits for the same run of another job");
+                // The other job failed or was cancelled: run it ourselves
+                return linked.thenCompose(path -> {
+                    if (path == null) {
+                        return track(CompletableFuture.supplyAsync(() -> execute(stage, inputs), executor));
+                    }
+                    waiting.remove(stage);
+                    return CompletableFuture.completedFuture(path);
+                });
+            }
+
+            // Linked for the waiting jobs before our own next stages see the output (and could clean it up)
+            return track(track(CompletableFuture.supplyAsync(() -> execute(stage, inputs), executor))
+                    .handleAsync((path, error) -> {
+                        handOff(stage.getShareKey(), error == null ? path : null);
+                        if (error != null) {
+                            throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+                        }
+                        return path;
+                    }, executors.get(Stage.Resource.IO)));
+        }
+
+        String execute(Stage stage, List<String> inputs) {
+            waiting.remove(stage);
+            if (isCancelled()) {
+                throw new CancellationException("Pipeline cancelled");
+            }
+            listener.onStart(stage);
+            try {
+                return stage.getAction().run(inputs);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }
+    }
+
+    // Gives every waiting job its own hardlink to the output (or null, so they run the stage themselves)
+    private void handOff(String shareKey, String path) {
+        SharedRun shared;
+        synchronized (inFlight) {
+            shared = inFlight.remove(shareKey);
+        }
+        for (Subscriber subscriber : shared.subscribers) {
+            if (path == null || subscriber.run.isCancelled()) {
+                subscriber.future.complete(null);
+            } else {
+                subscriber.future.complete(link(path, shared.base, subscriber.base));
+            }
+        }
+    }
+
+    // {base}.webm -> {targetBase}.webm, hardlinked (copied across filesystems)
+    private String link(String path, String base, String targetBase) {
+        if (!path.startsWith(base)) {
+            return null;
+        }
+        Path source = Path.of(path);
+        Path target = Path.of(targetBase + path.substring(base.length()));
+        try {
+            Files.deleteIfExists(target);
+            try {
+                Files.createLink(target, source);
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(source, target);
+            }
+            System.out.println("[Pipeline] Shared " + source.getFileName() + " as " + target.getFileName());
+            return target.toString();
+        } catch (IOException e) {
+            System.err.println("[Pipeline] Could not share " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static class SharedRun {
+        final String base;
+        final List<Subscriber> subscribers = new ArrayList<>(); // guarded by inFlight
+
+        SharedRun(String base) {
+            this.base = base;
+        }
+    }
+
+    private static class Subscriber {
+        final String base;
+        final CompletableFuture<String> future;
+        final Run run;
+
+        Subscriber(String base, CompletableFuture<String> future, Run run) {
+            this.base = base;
+            this.future = future;
+            this.run = run;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.clipit.job_service.pipeline;
+
+import java.util.List;
+
+/**
+ * One step of a job: runs once all its inputs are done and produces a file path (null = failed,
+ * without an error worth logging). Stages run on the engine's executor for their resource type.
+ */
+public class Stage {
+
+    public enum Resource {
+        NETWORK, // downloads
+        CPU,     // encodes
+        IO       // local file work
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        // Outputs of the input stages, in the order they were given
+        String run(List<String> inputs) throws Exception;
+    }
+
+    private final String name;
+    private final Resource resource;
+    private final Action action;
+    private final List<Stage> inputs;
+
+    private String shareKey;
+    private String shareBase;
+
+    public Stage(String name, Resource resource, Action action, Stage... inputs) {
+        this.name = name;
+        this.resource = resource;
+        this.action = action;
+        this.inputs = List.of(inputs);
+    }
+
+    /**
+     * Lets jobs running a stage with the same key at the same time share one run: later ones wait
+     * for the first and get its output hardlinked under their own base (the producer's output must
+     * start with its base, e.g. {temp-dir}{id}_video -> {temp-dir}{id}_video.webm).
+     */
+    public Stage shared(String key, String base) {
+        this.shareKey = key;
+        this.shareBase = base;
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public List<Stage> getInputs() {
+        return inputs;
+    }
+
+    public String getShareKey() {
+        return shareKey;
+    }
+
+    public String getShareBase() {
+        return shareBase;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,14 @@
+package com.clipit.job_service.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.clipit.job_service.entity.ArchivedJob;
+
+public interface ArchivedJobRepository extends JpaRepository<ArchivedJob, Long> {
+	List<ArchivedJob> findByUserIdOrderByCreatedAtDesc(String userId);
+
+	Optional<ArchivedJob> findByExternalIdAndUserId(String externalId, String userId);
+}
@@ -0,0 +1,14 @@
+package com.clipit.job_service.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.clipit.job_service.entity.JobEvent;
+
+public interface JobEventRepository extends JpaRepository<JobEvent, Long> {
+	List<JobEvent> findByExternalIdOrderByCreatedAtAsc(String externalId);
+
+	List<JobEvent> findByCreatedAtAfterOrderByCreatedAtAsc(LocalDateTime cutoffTime);
+}
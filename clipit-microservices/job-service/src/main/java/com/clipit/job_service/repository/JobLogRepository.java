@@ -0,0 +1,14 @@
+package com.clipit.job_service.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.clipit.job_service.entity.JobLog;
+
+public interface JobLogRepository extends JpaRepository<JobLog, Long> {
+	Optional<JobLog> findByExternalId(String externalId);
+
+	long deleteByCreatedAtBefore(LocalDateTime cutoffTime);
+}
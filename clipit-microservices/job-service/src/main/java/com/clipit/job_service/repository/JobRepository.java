@@ -4,9 +4,14 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.clipit.job_service.entity.Job;
+import com.clipit.job_service.entity.JobStatus;
 
 public interface JobRepository extends JpaRepository<Job, Long> {
 	Optional<Job> findByExternalId(String externalId);
@@ -15,5 +20,21 @@ public interface JobRepository extends JpaRepository<Job, Long> {
 
 	Optional<Job> findByExternalIdAndUserId(String externalId, String userId);
 	
-	List<Job> findByStatusAndCreatedAtBefore(String status, LocalDateTime cutoffTime);
+	List<Job> findByStatusAndCreatedAtBefore(JobStatus status, LocalDateTime cutoffTime);
+
+	List<Job> findByInstanceIdAndStatusIn(String instanceId, List<JobStatus> statuses);
+
+	List<Job> findByCreatedAtAfterAndCpuMillisNotNull(LocalDateTime since);
+
+	List<Job> findByUserIdAndCreatedAtAfterAndCpuMillisNotNull(String userId, LocalDateTime since);
+
+	List<Job> findByStatusInAndCreatedAtBefore(List<JobStatus> statuses, LocalDateTime cutoffTime, Pageable pageable);
+
+	// Rows written before statuses became codes still have only the old VARCHAR status column
+	@Modifying
+	@Transactional
+	@Query(value = "UPDATE jobs SET status_code = CASE status WHEN 'QUEUED' THEN 1 WHEN 'DOWNLOADING' THEN 2"
+			+ " WHEN 'PROCESSING' THEN 3 WHEN 'COMPLETED' THEN 4 WHEN 'FAILED' THEN 5 WHEN 'CANCELLED' THEN 6 END"
+			+ " WHERE status_code IS NULL AND status IS NOT NULL", nativeQuery = true)
+	int migrateLegacyStatus();
 }
\ No newline at end of file
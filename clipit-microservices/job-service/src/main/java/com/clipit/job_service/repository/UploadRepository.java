@@ -0,0 +1,17 @@
+package com.clipit.job_service.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.clipit.job_service.entity.Upload;
+
+public interface UploadRepository extends JpaRepository<Upload, Long> {
+	Optional<Upload> findByUploadIdAndUserId(String uploadId, String userId);
+
+	long countByUserIdAndStatus(String userId, String status);
+
+	List<Upload> findByUpdatedAtBefore(LocalDateTime cutoffTime);
+}
@@ -0,0 +1,19 @@
+package com.clipit.job_service.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.clipit.job_service.entity.WebhookDelivery;
+
+public interface WebhookDeliveryRepository extends JpaRepository<WebhookDelivery, Long> {
+	List<WebhookDelivery> findTop500ByStatusAndNextAttemptAtBeforeOrderByIdAsc(String status, LocalDateTime now);
+
+	List<WebhookDelivery> findByUserIdAndStatusOrderByCreatedAtDesc(String userId, String status);
+
+	Optional<WebhookDelivery> findByIdAndUserId(Long id, String userId);
+
+	long deleteByStatusAndCreatedAtBefore(String status, LocalDateTime cutoffTime);
+}
@@ -0,0 +1,14 @@
+package com.clipit.job_service.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.clipit.job_service.entity.Webhook;
+
+public interface WebhookRepository extends JpaRepository<Webhook, Long> {
+	List<Webhook> findByUserId(String userId);
+
+	Optional<Webhook> findByIdAndUserId(Long id, String userId);
+}
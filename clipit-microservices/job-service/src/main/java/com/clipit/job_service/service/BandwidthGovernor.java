@@ -0,0 +1,76 @@
+package com.clipit.job_service.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Splits the node-wide download budget between active yt-dlp processes.
+ * yt-dlp can't change --limit-rate once it runs, so every download gets an equal
+ * share of the budget as it stands when the download starts, but never more than
+ * what running downloads left free. Only the MIN_RATE_KB floor can go over the budget.
+ */
+@Service
+public class BandwidthGovernor {
+
+    // yt-dlp re-extracts below --throttled-rate (50K), so never hand out less than this
+    private static final long MIN_RATE_KB = 100;
+
+    @Value("${app.download.bandwidth-budget-kb:0}")
+    private long budgetKb; // KiB/s for the whole node, 0 = unlimited
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // download id -> assigned limit (KiB/s) and last speed reported by yt-dlp (bytes/s).
+    // One per yt-dlp process: a merge job downloads its video and audio at the same time.
+    private final Map<String, Long> allocatedKb = new ConcurrentHashMap<>();
+    private final Map<String, Double> observedBytesPerSecond = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("clipit.bandwidth.budget", () -> budgetKb * 1024)
+                .baseUnit("bytes/s").description("Node-wide download budget (0 = unlimited)")
+                .register(meterRegistry);
+        Gauge.builder("clipit.bandwidth.allocated", () -> allocatedKb.values().stream().mapToLong(Long::longValue).sum() * 1024)
+                .baseUnit("bytes/s").description("Sum of rate limits handed to running downloads")
+                .register(meterRegistry);
+        Gauge.builder("clipit.bandwidth.observed", () -> observedBytesPerSecond.values().stream().mapToDouble(Double::doubleValue).sum())
+                .baseUnit("bytes/s").description("Sum of speeds reported by running downloads")
+                .register(meterRegistry);
+        Gauge.builder("clipit.downloads.active", allocatedKb, Map::size)
+                .description("Running yt-dlp downloads")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers a download and returns its rate limit in KiB/s (0 = no limit).
+     */
+    public synchronized long acquire(String downloadId) {
+        long limitKb = 0;
+        if (budgetKb > 0) {
+            long freeKb = budgetKb - allocatedKb.values().stream().mapToLong(Long::longValue).sum();
+            limitKb = Math.max(Math.min(budgetKb / (allocatedKb.size() + 1), freeKb), MIN_RATE_KB);
+        }
+        allocatedKb.put(downloadId, limitKb);
+        return limitKb;
+    }
+
+    public synchronized void release(String downloadId) {
+        allocatedKb.remove(downloadId);
+        observedBytesPerSecond.remove(downloadId);
+    }
+
+    public void reportSpeed(String downloadId, double bytesPerSecond) {
+        if (allocatedKb.containsKey(downloadId)) {
+            observedBytesPerSecond.put(downloadId, bytesPerSecond);
+        }
+    }
+}
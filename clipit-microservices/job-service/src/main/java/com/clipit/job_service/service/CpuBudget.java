@@ -0,0 +1,157 @@
+package com.clipit.job_service.service;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Splits the node's cores between running ffmpeg processes. Like the bandwidth budget, each
+ * encode gets a fair share as it stands when it starts (ffmpeg can't change -threads later),
+ * capped at the threads running encodes left free (only min-threads can go over the total),
+ * plus a nice level from the current load average so new encodes yield to running ones when
+ * the machine is already busy. On Linux, encodes can also be pinned to their own cores
+ * (taskset) or capped with a systemd scope (cgroup CPU quota).
+ */
+@Service
+public class CpuBudget {
+
+    @Value("${app.cpu.threads:0}")
+    private int configuredThreads; // 0 = all available processors
+
+    @Value("${app.cpu.min-threads:1}")
+    private int minThreads;
+
+    @Value("${app.cpu.pinning:none}")
+    private String pinning; // none, taskset, cgroup (Linux only)
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final boolean linux = System.getProperty("os.name").toLowerCase().contains("linux");
+    private final boolean windows = System.getProperty("os.name").toLowerCase().contains("windows");
+
+    private int totalThreads;
+
+    // Guarded by this
+    private final List<Allotment> active = new ArrayList<>();
+    private int[] coreUsers;
+
+    @PostConstruct
+    public void init() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        totalThreads = configuredThreads > 0 ? configuredThreads : cores;
+        coreUsers = new int[cores];
+
+        Gauge.builder("clipit.cpu.budget", () -> totalThreads)
+                .description("Encoder threads the node hands out")
+                .register(meterRegistry);
+        Gauge.builder("clipit.cpu.allotted", this, budget -> budget.getAllottedThreads())
+                .description("Encoder threads given to running ffmpeg processes")
+                .register(meterRegistry);
+        Gauge.builder("clipit.cpu.encodes.active", this, budget -> budget.getActiveCount())
+                .description("Running ffmpeg processes")
+                .register(meterRegistry);
+    }
+
+    public synchronized Allotment acquire() {
+        int freeThreads = totalThreads - getAllottedThreads();
+        int threads = Math.max(minThreads, Math.min(totalThreads / (active.size() + 1), freeThreads));
+        threads = Math.min(threads, totalThreads);
+
+        // 1-minute load per core: yield when the machine is already saturated
+        double load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+        double loadPerCore = load < 0 ? 0 : load / coreUsers.length;
+        int niceness = loadPerCore >= 1.0 ? 10 : loadPerCore >= 0.7 ? 5 : 0;
+
+        // Least-used cores first, so concurrent encodes end up on disjoint sets while there are enough
+        List<Integer> cores = IntStream.range(0, coreUsers.length).boxed()
+                .sorted(Comparator.comparingInt((Integer core) -> coreUsers[core]).thenComparingInt(core -> core))
+                .limit(Math.min(threads, coreUsers.length))
+                .sorted()
+                .collect(Collectors.toList());
+        for (int core : cores) {
+            coreUsers[core]++;
+        }
+
+        Allotment allotment = new Allotment(threads, niceness, cores);
+        active.add(allotment);
+        return allotment;
+    }
+
+    public synchronized void release(Allotment allotment) {
+        if (active.remove(allotment)) {
+            for (int core : allotment.cores) {
+                coreUsers[core]--;
+            }
+        }
+    }
+
+    /**
+     * Adds -threads before the output (the last argument) and wraps the command with
+     * nice and, if configured, taskset or a systemd scope.
+     */
+    public List<String> apply(List<String> ffmpegCommand, Allotment allotment) {
+        List<String> command = new ArrayList<>();
+
+        if (linux && "taskset".equals(pinning)) {
+            command.add("taskset");
+            command.add("-c");
+            command.add(allotment.cores.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        } else if (linux && "cgroup".equals(pinning)) {
+            command.add("systemd-run");
+            command.add("--user");
+            command.add("--scope");
+            command.add("--quiet");
+            command.add("-p");
+            command.add("CPUQuota=" + allotment.threads * 100 + "%");
+        }
+
+        if (!windows && allotment.niceness > 0) {
+            command.add("nice");
+            command.add("-n");
+            command.add(String.valueOf(allotment.niceness));
+        }
+
+        command.addAll(ffmpegCommand.subList(0, ffmpegCommand.size() - 1));
+        command.add("-threads");
+        command.add(String.valueOf(allotment.threads));
+        command.add(ffmpegCommand.get(ffmpegCommand.size() - 1));
+        return command;
+    }
+
+    private synchronized int getAllottedThreads() {
+        return active.stream().mapToInt(allotment -> allotment.threads).sum();
+    }
+
+    private synchronized int getActiveCount() {
+        return active.size();
+    }
+
+    public static class Allotment {
+        final int threads;
+        final int niceness;
+        final List<Integer> cores;
+
+        Allotment(int threads, int niceness, List<Integer> cores) {
+            this.threads = threads;
+            this.niceness = niceness;
+            this.cores = cores;
+        }
+
+        @Override
+        public String toString() {
+            return threads + " threads, nice " + niceness + ", cores " + cores;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.clipit.job_service.service;
+
+import java.io.File;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.clipit.job_service.entity.Job;
+import com.clipit.job_service.entity.JobStatus;
+import com.clipit.job_service.repository.JobRepository;
+
+/**
+ * Reserves estimated temp/output space per volume before a job starts, so we never
+ * start work that is going to die with ENOSPC, and enforces per-user storage quotas.
+ * The scheduler asks before dispatching; a job that doesn't fit yet stays QUEUED
+ * without holding a worker.
+ *
+ * Reservations are held for the whole job and the volume's free space is read live,
+ * so bytes a running job has already written count twice. That errs on the safe side.
+ */
+@Service
+public class DiskAdmissionService {
+
+    private static final long GB = 1024L * 1024 * 1024;
+
+    @Value("${app.storage.temp-dir}")
+    private String tempDir;
+
+    @Value("${app.storage.output-dir}")
+    private String outputDir;
+
+    @Value("${app.admission.min-free-gb:1}")
+    private long minFreeGb;
+
+    @Value("${app.admission.user-quota-gb:0}")
+    private long userQuotaGb; // 0 = no quota
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    // externalId -> reservation, guarded by this
+    private final Map<String, Reservation> reservations = new HashMap<>();
+
+    /**
+     * Reserves the space if both volumes can take the job right now. False if they can't yet;
+     * throws if the user is over quota or the job could never fit.
+     */
+    public synchronized boolean tryAdmit(String externalId, String userId, long tempBytes, long outputBytes)
+            throws Exception {
+        checkUserQuota(userId, outputBytes);
+
+        Map<FileStore, Long> needed = new HashMap<>();
+        needed.merge(Files.getFileStore(Path.of(tempDir)), tempBytes, Long::sum);
+        needed.merge(Files.getFileStore(Path.of(outputDir)), outputBytes, Long::sum);
+
+        for (Map.Entry<FileStore, Long> entry : needed.entrySet()) {
+            if (entry.getValue() > entry.getKey().getTotalSpace() - minFreeGb * GB) {
+                throw new RuntimeException("Job needs " + entry.getValue() / (1024 * 1024) + " MB, more than volume "
+                        + entry.getKey().name() + " can ever hold");
+            }
+        }
+
+        if (!fits(needed)) {
+            return false;
+        }
+        reservations.put(externalId, new Reservation(userId, needed, tempBytes, outputBytes));
+        return true;
+    }
+
+    /**
+     * Grows an admitted job's temp reservation to tempBytes, e.g. before a streaming job (admitted
+     * with no temp space) falls back to temp-dir. False if the temp volume can't take the difference now.
+     */
+    public synchronized boolean reserveTemp(String externalId, long tempBytes) throws Exception {
+        Reservation reservation = reservations.get(externalId);
+        if (reservation == null) {
+            return false;
+        }
+        long extra = tempBytes - reservation.tempBytes;
+        if (extra <= 0) {
+            return true;
+        }
+
+        FileStore store = Files.getFileStore(Path.of(tempDir));
+        if (!fits(Map.of(store, extra))) {
+            return false;
+        }
+        reservation.bytesByStore.merge(store, extra, Long::sum);
+        reservation.tempBytes = tempBytes;
+        return true;
+    }
+
+    public synchronized void release(String externalId) {
+        reservations.remove(externalId);
+    }
+
+    private boolean fits(Map<FileStore, Long> needed) throws Exception {
+        for (Map.Entry<FileStore, Long> entry : needed.entrySet()) {
+            long reserved = 0;
+            for (Reservation reservation : reservations.values()) {
+                reserved += reservation.bytesByStore.getOrDefault(entry.getKey(), 0L);
+            }
+            long available = entry.getKey().getUsableSpace() - minFreeGb * GB - reserved;
+            if (entry.getValue() > available) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkUserQuota(String userId, long outputBytes) {
+        if (userQuotaGb <= 0) {
+            return;
+        }
+
+        long used = 0;
+        for (Job job : jobRepository.findByUserId(userId)) {
+            if (job.getStatus() == JobStatus.COMPLETED && job.getFilePath() != null) {
+                used += getStoredBytes(job.getFilePath());
+            }
+        }
+        for (Reservation reservation : reservations.values()) {
+            if (reservation.userId.equals(userId)) {
+                used += reservation.outputBytes;
+            }
+        }
+
+        if (used + outputBytes > userQuotaGb * GB) {
+            throw new RuntimeException("Storage quota of " + userQuotaGb + " GB exceeded for user " + userId);
+        }
+    }
+
+    // HLS outputs are a directory of segments next to the playlist
+    private long getStoredBytes(String filePath) {
+        File file = new File(filePath);
+        if (filePath.endsWith(JobProcessorService.HLS_PLAYLIST)) {
+            File[] files = file.getParentFile().listFiles();
+            long total = 0;
+            if (files != null) {
+                for (File f : files) {
+                    total += f.length();
+                }
+            }
+            return total;
+        }
+        return file.length();
+    }
+
+    private static class Reservation {
+        final String userId;
+        final Map<FileStore, Long> bytesByStore;
+        long tempBytes;
+        final long outputBytes;
+
+        Reservation(String userId, Map<FileStore, Long> bytesByStore, long tempBytes, long outputBytes) {
+            this.userId = userId;
+            this.bytesByStore = bytesByStore;
+            this.tempBytes = tempBytes;
+            this.outputBytes = outputBytes;
+        }
+    }
+}
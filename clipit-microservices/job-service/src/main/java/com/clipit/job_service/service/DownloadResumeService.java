@@ -0,0 +1,211 @@
+package com.clipit.job_service.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Properties;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.clipit.job_service.entity.Job;
+import com.clipit.job_service.entity.JobStatus;
+import com.clipit.job_service.repository.JobRepository;
+
+/**
+ * Keeps yt-dlp downloads in temp-dir resumable across restarts and retries. Every download has a
+ * stable name ({externalId}_video / _audio) with two sidecars: .resume (URL and format selector,
+ * written before yt-dlp starts) and .format (the format id and size yt-dlp picked, written by
+ * yt-dlp right before it downloads). A later run pins that exact format, so yt-dlp continues the
+ * .part file instead of picking a different stream, after the partial has been checked against it.
+ */
+@Service
+public class DownloadResumeService {
+
+    private static final String RESUME_SUFFIX = ".resume";
+    private static final String FORMAT_SUFFIX = ".format";
+    private static final String EXT_TEMPLATE = ".%(ext)s";
+
+    // Tail of a .part file that is fetched again on resume, in case the crash left it half-written
+    @Value("${app.resume.rewind-kb:1024}")
+    private long rewindKb;
+
+    // Failed jobs keep their downloads this long so a retry can pick them up
+    @Value("${app.resume.keep-hours:24}")
+    private long keepHours;
+
+    @Value("${app.storage.temp-dir}")
+    private String tempDir;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    /**
+     * Returns the format to download into outputTemplate: the recorded format id when there is
+     * a matching partial or finished download to continue, otherwise the selector (and starts
+     * a fresh record for it).
+     */
+    public String prepare(String outputTemplate, String selector, String url) {
+        String base = getBase(outputTemplate);
+        Properties record = load(new File(base + RESUME_SUFFIX));
+        String[] format = readFormat(base);
+
+        if (record != null && format != null && url.equals(record.getProperty("url"))
+                && selector.equals(record.getProperty("selector")) && checkPartials(base, format[1])) {
+            System.out.println("[Resume] Continuing " + new File(base).getName() + " with format " + format[0]);
+            return format[0];
+        }
+        return restart(outputTemplate, selector, url);
+    }
+
+    // Throws away whatever was downloaded into outputTemplate and records a fresh start
+    public String restart(String outputTemplate, String selector, String url) {
+        String base = getBase(outputTemplate);
+        for (File file : getFiles(base)) {
+            file.delete();
+        }
+
+        Properties record = new Properties();
+        record.setProperty("url", url);
+        record.setProperty("selector", selector);
+        try (OutputStream out = new FileOutputStream(base + RESUME_SUFFIX)) {
+            record.store(out, null);
+        } catch (IOException e) {
+            System.err.println("[Resume] Could not write " + base + RESUME_SUFFIX + ": " + e.getMessage());
+        }
+        return selector;
+    }
+
+    // Makes yt-dlp record the format it picked before downloading, see readFormat
+    public List<String> getRecordArgs(String outputTemplate) {
+        return List.of("--print-to-file", "before_dl:%(format_id)s %(filesize)s", getBase(outputTemplate) + FORMAT_SUFFIX);
+    }
+
+    /**
+     * Integrity check for a resumed download: the finished file must be exactly the size yt-dlp
+     * reported for the format (when it reported one).
+     */
+    public boolean verify(String outputTemplate, String downloadedPath) {
+        String[] format = readFormat(getBase(outputTemplate));
+        if (format == null || format[1] == null) {
+            return true;
+        }
+        return new File(downloadedPath).length() == Long.parseLong(format[1]);
+    }
+
+    // Removes a finished job's downloads, partials and records from temp-dir
+    public void discard(String externalId) {
+        File[] files = new File(tempDir).listFiles((dir, name) -> name.startsWith(externalId + "_")
+                && (name.contains("_video.") || name.contains("_audio.")));
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    // Cron expression: At minute 30 of every hour, drop downloads kept for retries that never came
+    @Scheduled(cron = "0 30 * * * *")
+    public void cleanupAbandoned() {
+        File[] records = new File(tempDir).listFiles((dir, name) -> name.endsWith(RESUME_SUFFIX));
+        if (records == null) {
+            return;
+        }
+
+        long cutoff = System.currentTimeMillis() - keepHours * 3600_000;
+        int count = 0;
+        for (File record : records) {
+            if (record.lastModified() > cutoff) {
+                continue;
+            }
+            String externalId = record.getName().substring(0, record.getName().lastIndexOf('_'));
+            JobStatus status = jobRepository.findByExternalId(externalId).map(Job::getStatus).orElse(null);
+            if (status == null || status.isTerminal()) {
+                discard(externalId);
+                count++;
+            }
+        }
+        System.out.println("[Cleanup] Deleted " + count + " abandoned partial downloads.");
+    }
+
+    /**
+     * A partial is resumable if it isn't larger than the recorded format. Plain .part files are
+     * rewound by rewind-kb first; fragmented downloads (.ytdl state next to them) are checked by yt-dlp.
+     * False if there is nothing to continue.
+     */
+    private boolean checkPartials(String base, String expectedBytes) {
+        long expected = expectedBytes != null ? Long.parseLong(expectedBytes) : -1;
+        boolean fragmented = getFiles(base).stream().anyMatch(file -> file.getName().endsWith(".ytdl"));
+        boolean found = false;
+
+        for (File file : getFiles(base)) {
+            String name = file.getName();
+            if (name.endsWith(RESUME_SUFFIX) || name.endsWith(FORMAT_SUFFIX) || name.endsWith(".ytdl")
+                    || name.contains(".part-Frag")) {
+                continue;
+            }
+            boolean partial = name.endsWith(".part");
+            if (expected >= 0 && (partial ? file.length() > expected : file.length() != expected)) {
+                System.err.println("[Resume] " + name + " is " + file.length() + " bytes, format has " + expected);
+                return false;
+            }
+            if (partial && !fragmented) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(Math.max(0, raf.length() - rewindKb * 1024));
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+            found = true;
+        }
+        return found;
+    }
+
+    // {format id, size in bytes or null}, from the last line yt-dlp wrote
+    private String[] readFormat(String base) {
+        try {
+            List<String> lines = Files.readAllLines(new File(base + FORMAT_SUFFIX).toPath());
+            if (lines.isEmpty()) {
+                return null;
+            }
+            String[] parts = lines.get(lines.size() - 1).trim().split(" ");
+            String size = parts.length > 1 && parts[1].matches("\\d+") ? parts[1] : null;
+            return parts[0].isEmpty() ? null : new String[] { parts[0], size };
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Properties load(File file) {
+        try (InputStream in = new FileInputStream(file)) {
+            Properties properties = new Properties();
+            properties.load(in);
+            return properties;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Everything named base.* (the download, .part, .ytdl, fragments and both records)
+    private List<File> getFiles(String base) {
+        File baseFile = new File(base);
+        File[] files = baseFile.getAbsoluteFile().getParentFile()
+                .listFiles((dir, name) -> name.startsWith(baseFile.getName() + "."));
+        return files == null ? List.of() : List.of(files);
+    }
+
+    // {temp-dir}{id}_video.%(ext)s -> {temp-dir}{id}_video
+    private String getBase(String outputTemplate) {
+        return outputTemplate.endsWith(EXT_TEMPLATE)
+                ? outputTemplate.substring(0, outputTemplate.length() - EXT_TEMPLATE.length())
+                : outputTemplate;
+    }
+}
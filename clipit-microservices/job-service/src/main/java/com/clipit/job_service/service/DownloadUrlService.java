@@ -0,0 +1,98 @@
+package com.clipit.job_service.service;
+
+import java.io.File;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.clipit.job_service.entity.Job;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Issues short-lived HMAC-signed URLs that point straight at this node's public downloads port
+ * (see FilesConnectorConfig), so large files don't have to be relayed through the gateway and
+ * download managers can resume them without the JWT. Everything needed to serve the file is
+ * in the URL and covered by the signature, so validation needs no database lookup.
+ */
+@Service
+public class DownloadUrlService {
+
+    @Value("${app.download.signing-secret}")
+    private String signingSecret;
+
+    @Value("${app.download.public-base-url}")
+    private String publicBaseUrl; // this node's public downloads port as clients reach it, e.g. https://node1.example.com:8090
+
+    @Value("${app.download.url-ttl-seconds:300}")
+    private long urlTtlSeconds;
+
+    @Value("${app.storage.output-dir}")
+    private String outputDir;
+
+    private SecretKeySpec signingKey;
+
+    @PostConstruct
+    public void init() {
+        signingKey = new SecretKeySpec(signingSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+
+        // Each node serves only its own outputs, so the URL has to name the node
+        if (!publicBaseUrl.startsWith("http://") && !publicBaseUrl.startsWith("https://")) {
+            throw new IllegalStateException("app.download.public-base-url must be this node's absolute public URL, got " + publicBaseUrl);
+        }
+        if (publicBaseUrl.endsWith("/")) {
+            publicBaseUrl = publicBaseUrl.substring(0, publicBaseUrl.length() - 1);
+        }
+    }
+
+    public String createSignedUrl(Job job) {
+        String fileName = new File(job.getFilePath()).getName();
+        long expires = System.currentTimeMillis() / 1000 + urlTtlSeconds;
+        String signature = sign(job.getExternalId(), fileName, job.getUserId(), expires);
+
+        return publicBaseUrl + "/files/" + job.getExternalId() + "/" + fileName
+                + "?u=" + URLEncoder.encode(job.getUserId(), StandardCharsets.UTF_8)
+                + "&e=" + expires
+                + "&s=" + signature;
+    }
+
+    /**
+     * Returns the output file if the signature matches and hasn't expired, null otherwise.
+     */
+    public File verify(String externalId, String fileName, String userId, long expires, String signature) {
+        if (expires < System.currentTimeMillis() / 1000) {
+            return null;
+        }
+
+        // Outputs are always named {externalId}.{format}, anything else is not ours to serve
+        if (!fileName.startsWith(externalId + ".") || fileName.contains("/") || fileName.contains("\\")) {
+            return null;
+        }
+
+        byte[] expected = sign(externalId, fileName, userId, expires).getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.UTF_8))) {
+            return null;
+        }
+
+        File file = new File(outputDir + fileName);
+        return file.exists() ? file : null;
+    }
+
+    private String sign(String externalId, String fileName, String userId, long expires) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(signingKey);
+            String payload = externalId + "\n" + fileName + "\n" + userId + "\n" + expires;
+            return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to sign download URL", e);
+        }
+    }
+}
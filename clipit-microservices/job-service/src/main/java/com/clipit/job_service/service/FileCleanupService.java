@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.clipit.job_service.entity.Job;
+import com.clipit.job_service.entity.JobStatus;
 import com.clipit.job_service.repository.JobRepository;
 
 @Service
@@ -30,14 +31,17 @@ public class FileCleanupService {
         // 2. Find eligible jobs
         // We look for 'COMPLETED' jobs where 'createdAt' is older than 24h
         // AND 'filePath' is not null (so we don't process already cleaned jobs)
-        List<Job> oldJobs = jobRepository.findByStatusAndCreatedAtBefore("COMPLETED", cutoff);
+        List<Job> oldJobs = jobRepository.findByStatusAndCreatedAtBefore(JobStatus.COMPLETED, cutoff);
 
         int count = 0;
         for (Job job : oldJobs) {
             if (job.getFilePath() != null) {
                 // 3. Delete the physical file
                 File file = new File(job.getFilePath());
-                if (file.exists()) {
+                if (job.getFilePath().endsWith(JobProcessorService.HLS_PLAYLIST)) {
+                    // HLS jobs own a whole directory of segments
+                    deleteHlsDirectory(file.getParentFile());
+                } else if (file.exists()) {
                     boolean deleted = file.delete();
                     if (deleted) {
                         System.out.println("[Cleanup] Deleted file: " + job.getFilePath());
@@ -56,4 +60,18 @@ public class FileCleanupService {
 
         System.out.println("[Cleanup] Task finished. Processed " + count + " files.");
     }
+
+    private void deleteHlsDirectory(File hlsDir) {
+        File[] files = hlsDir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        if (hlsDir.delete()) {
+            System.out.println("[Cleanup] Deleted HLS directory: " + hlsDir.getPath());
+        } else {
+            System.err.println("[Cleanup] Failed to delete HLS directory: " + hlsDir.getPath());
+        }
+    }
 }
\ No newline at end of file
@@ -1,15 +1,16 @@
 package com.clipit.job_service.service;
 
 import com.clipit.job_service.dto.FormatsResponse;
+import com.clipit.job_service.dto.SizeEstimate;
 import com.clipit.job_service.dto.VideoFormat;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 @Service
 public class FormatService {
@@ -17,33 +18,32 @@ public class FormatService {
     @Value("${app.tools.yt-dlp}")
     private String ytDlpPath;
 
+    @Autowired
+    private YtDlpWorkerPool workerPool;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
     public FormatsResponse getFormats(String videoUrl) {
         Map<String, FormatCandidate> bestFormats = new HashMap<>();
 
         try {
-            ProcessBuilder pb = new ProcessBuilder(ytDlpPath, "-F", videoUrl);
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
-
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    
-                    if (!line.contains("video only")) continue;
-
-                    VideoFormat format = parseLine(line);
-                    if (format != null) {
-                        String key = format.getResolution() + "@" + format.getFps();
-                        
-                        int currentRank = getCodecRank(line);
-
-                        if (!bestFormats.containsKey(key) || currentRank < bestFormats.get(key).rank) {
-                            bestFormats.put(key, new FormatCandidate(format, currentRank));
-                        }
+            JsonNode info = extractInfo(videoUrl, null);
+
+            for (JsonNode node : info.path("formats")) {
+                // Video-only streams; the job selectors only accept numeric format ids
+                if (!"none".equals(node.path("acodec").asText()) || "none".equals(node.path("vcodec").asText("none"))) continue;
+
+                VideoFormat format = parseFormat(node);
+                if (format != null) {
+                    String key = format.getResolution() + "@" + format.getFps();
+
+                    int currentRank = getCodecRank(node.path("vcodec").asText());
+
+                    if (!bestFormats.containsKey(key) || currentRank < bestFormats.get(key).rank) {
+                        bestFormats.put(key, new FormatCandidate(format, currentRank));
                     }
                 }
             }
-            process.waitFor();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -72,30 +72,98 @@ public class FormatService {
         return response;
     }
 
-    private int getCodecRank(String line) {
+    /**
+     * Resolves a yt-dlp format selector without downloading and returns the expected
+     * size of the selected stream(s): filesize, else filesize_approx, else bitrate x duration.
+     */
+    public SizeEstimate estimateSize(String videoUrl, String formatSelector) throws Exception {
+        JsonNode info = extractInfo(videoUrl, formatSelector);
+
+        double duration = info.path("duration").asDouble(0);
+
+        // Merged selections (video+audio) list their parts in requested_formats
+        List<JsonNode> formats = new ArrayList<>();
+        if (info.has("requested_formats")) {
+            info.get("requested_formats").forEach(formats::add);
+        } else {
+            formats.add(info);
+        }
+
+        long bytes = 0;
+        String audioCodec = null;
+        for (JsonNode format : formats) {
+            String acodec = format.path("acodec").asText("none");
+            if (acodec.startsWith("mp4a")) {
+                audioCodec = "aac";
+            } else if (acodec.equals("opus") || acodec.equals("mp3")) {
+                audioCodec = acodec;
+            }
+
+            if (format.path("filesize").asLong(0) > 0) {
+                bytes += format.get("filesize").asLong();
+            } else if (format.path("filesize_approx").asLong(0) > 0) {
+                bytes += format.get("filesize_approx").asLong();
+            } else {
+                // tbr is in kbit/s
+                bytes += (long) (format.path("tbr").asDouble(0) * 1000 / 8 * duration);
+            }
+        }
+
+        return new SizeEstimate(bytes, duration, audioCodec);
+    }
+
+    /**
+     * yt-dlp info dict for the URL (with the selector resolved, if given). Served by a warm
+     * worker when one is free, otherwise by a one-shot `yt-dlp -J`.
+     */
+    private JsonNode extractInfo(String videoUrl, String formatSelector) throws Exception {
+        JsonNode info = workerPool.extract(videoUrl, formatSelector);
+        if (info != null) {
+            return info;
+        }
+
+        List<String> command = new ArrayList<>(List.of(ytDlpPath, "-J", "--no-playlist", "--force-ipv4"));
+        if (formatSelector != null) {
+            command.add("-f");
+            command.add(formatSelector);
+        }
+        command.add(videoUrl);
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        Process process = pb.start();
+
+        try (InputStream in = process.getInputStream()) {
+            info = objectMapper.readTree(in);
+        }
+        if (process.waitFor() != 0 || info == null) {
+            throw new RuntimeException("Could not read format metadata for " + videoUrl);
+        }
+        return info;
+    }
+
+    private int getCodecRank(String vcodec) {
         
-        if (line.contains("avc1")) return 1; 
+        if (vcodec.startsWith("avc1")) return 1; 
         
-        if (line.contains("av01")) return 2; 
+        if (vcodec.startsWith("av01")) return 2; 
 
-        if (line.contains("vp9")) return 3;  
+        if (vcodec.startsWith("vp9") || vcodec.startsWith("vp09")) return 3;  
         
         return 4;
     }
 
-    private VideoFormat parseLine(String line) {
-        Pattern pattern = Pattern.compile("^(\\d+)\\s+(\\w+)\\s+(\\d+x\\d+)\\s+([\\d\\s]+).*");
-        Matcher matcher = pattern.matcher(line);
-
-        if (matcher.find()) {
-            String id = matcher.group(1);
-            String extension = matcher.group(2);
-            String resolution = matcher.group(3);
-            String fps = matcher.group(4).trim().split("\\s+")[0];
+    private VideoFormat parseFormat(JsonNode node) {
+        String id = node.path("format_id").asText();
+        int width = node.path("width").asInt(0);
+        int height = node.path("height").asInt(0);
 
-            return new VideoFormat(id, extension, resolution, fps);
+        if (!id.matches("\\d+") || width <= 0 || height <= 0) {
+            return null;
         }
-        return null;
+
+        String fps = String.valueOf((int) Math.round(node.path("fps").asDouble(0)));
+        return new VideoFormat(id, node.path("ext").asText(), width + "x" + height, fps);
     }
 
     private int parseHeight(String resolution) {
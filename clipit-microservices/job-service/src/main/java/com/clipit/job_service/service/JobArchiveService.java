@@ -0,0 +1,103 @@
+package com.clipit.job_service.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.clipit.job_service.entity.ArchivedJob;
+import com.clipit.job_service.entity.Job;
+import com.clipit.job_service.entity.JobStatus;
+import com.clipit.job_service.repository.ArchivedJobRepository;
+import com.clipit.job_service.repository.JobRepository;
+
+/**
+ * Keeps the jobs table small: finished jobs older than retention-days are moved to jobs_archive
+ * in batches, one transaction per batch. History (job list, status, timeline) is read from both.
+ */
+@Service
+public class JobArchiveService {
+
+    private static final List<JobStatus> TERMINAL_STATUSES = Arrays.stream(JobStatus.values())
+            .filter(JobStatus::isTerminal).toList();
+
+    @Value("${app.archive.retention-days:30}")
+    private long retentionDays;
+
+    @Value("${app.archive.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    @Autowired
+    private ArchivedJobRepository archivedJobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Before anything reads statuses (e.g. JobScheduler re-queueing interrupted jobs)
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void migrateLegacyStatus() {
+        try {
+            int count = jobRepository.migrateLegacyStatus();
+            if (count > 0) {
+                System.out.println("[Archive] Converted the status of " + count + " jobs to status codes");
+            }
+        } catch (Exception e) {
+            // Databases created after the switch have no old status column
+            System.out.println("[Archive] No old job statuses to convert");
+        }
+    }
+
+    // Cron expression: At 04:15 every day, move finished jobs past the retention window
+    @Scheduled(cron = "0 15 4 * * *")
+    public void archiveOldJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        int total = 0;
+        int moved;
+        do {
+            moved = transaction.execute(status -> {
+                List<Job> batch = jobRepository.findByStatusInAndCreatedAtBefore(TERMINAL_STATUSES, cutoff,
+                        PageRequest.of(0, batchSize, Sort.by("id")));
+                archivedJobRepository.saveAll(batch.stream().map(ArchivedJob::from).toList());
+                jobRepository.deleteAllInBatch(batch);
+                return batch.size();
+            });
+            total += moved;
+        } while (moved == batchSize);
+
+        System.out.println("[Archive] Moved " + total + " jobs older than " + retentionDays + " days to the archive.");
+    }
+
+    // The user's jobs from both tables, hot ones first
+    public List<Job> findByUserId(String userId) {
+        List<Job> jobs = new ArrayList<>(jobRepository.findByUserId(userId));
+        archivedJobRepository.findByUserIdOrderByCreatedAtDesc(userId).forEach(archived -> jobs.add(archived.toJob()));
+        return jobs;
+    }
+
+    // Read-only for archived jobs: they can't be cancelled, retried or downloaded any more
+    public Optional<Job> findByExternalIdAndUserId(String externalId, String userId) {
+        Optional<Job> job = jobRepository.findByExternalIdAndUserId(externalId, userId);
+        return job.isPresent() ? job
+                : archivedJobRepository.findByExternalIdAndUserId(externalId, userId).map(ArchivedJob::toJob);
+    }
+}
@@ -0,0 +1,119 @@
+package com.clipit.job_service.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.clipit.job_service.entity.JobLog;
+import com.clipit.job_service.repository.JobLogRepository;
+
+/**
+ * Keeps the last N lines of tool output per running job in memory. The buffer is saved
+ * when the job fails and dropped otherwise. Every line also goes to the
+ * "com.clipit.job_service.tools" logger at DEBUG, which is off by default.
+ */
+@Service
+public class JobLogService {
+
+    private static final Logger toolLog = LoggerFactory.getLogger("com.clipit.job_service.tools");
+
+    // ffmpeg can print very long lines (e.g. metadata), keep the buffer bounded in bytes too
+    private static final int MAX_LINE_LENGTH = 1000;
+
+    @Value("${app.joblog.lines:500}")
+    private int maxLines;
+
+    @Value("${app.joblog.retention-days:7}")
+    private int retentionDays;
+
+    @Autowired
+    private JobLogRepository jobLogRepository;
+
+    private final Map<String, RingBuffer> buffers = new ConcurrentHashMap<>();
+
+    public void append(String externalId, String line) {
+        toolLog.debug("{} {}", externalId, line);
+
+        if (line.length() > MAX_LINE_LENGTH) {
+            line = line.substring(0, MAX_LINE_LENGTH) + "...";
+        }
+        buffers.computeIfAbsent(externalId, id -> new RingBuffer(Math.max(maxLines, 1))).add(line);
+    }
+
+    // Live buffer while the job runs, the saved one after it failed, null otherwise
+    public String getLog(String externalId) {
+        RingBuffer buffer = buffers.get(externalId);
+        if (buffer != null) {
+            return buffer.toText();
+        }
+        return jobLogRepository.findByExternalId(externalId).map(JobLog::getOutput).orElse(null);
+    }
+
+    public void save(String externalId) {
+        RingBuffer buffer = buffers.get(externalId);
+        if (buffer == null) {
+            return;
+        }
+
+        JobLog jobLog = jobLogRepository.findByExternalId(externalId).orElseGet(JobLog::new);
+        jobLog.setExternalId(externalId);
+        synchronized (buffer) {
+            jobLog.setOutput(buffer.toText());
+            jobLog.setLineCount(buffer.lines.size());
+            jobLog.setDroppedLines(buffer.dropped);
+        }
+        jobLogRepository.save(jobLog);
+    }
+
+    public void discard(String externalId) {
+        buffers.remove(externalId);
+    }
+
+    // Cron expression: At minute 15 past 3 AM every day
+    @Scheduled(cron = "0 15 3 * * *")
+    @Transactional
+    public void deleteOldLogs() {
+        long count = jobLogRepository.deleteByCreatedAtBefore(LocalDateTime.now().minusDays(retentionDays));
+        System.out.println("[Cleanup] Deleted " + count + " saved job logs.");
+    }
+
+    private static class RingBuffer {
+        final int capacity;
+        final ArrayDeque<String> lines;
+        int dropped;
+
+        RingBuffer(int capacity) {
+            this.capacity = capacity;
+            this.lines = new ArrayDeque<>(capacity);
+        }
+
+        // Chunked transcodes append from several threads
+        synchronized void add(String line) {
+            if (lines.size() == capacity) {
+                lines.removeFirst();
+                dropped++;
+            }
+            lines.addLast(line);
+        }
+
+        synchronized String toText() {
+            StringBuilder text = new StringBuilder();
+            if (dropped > 0) {
+                text.append("... ").append(dropped).append(" earlier lines dropped\n");
+            }
+            for (String line : lines) {
+                text.append(line).append('\n');
+            }
+            return text.toString();
+        }
+    }
+}
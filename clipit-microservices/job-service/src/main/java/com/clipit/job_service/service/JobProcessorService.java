@@ -1,27 +1,93 @@
 package com.clipit.job_service.service;
 
+import com.clipit.job_service.dto.FormatsResponse;
 import com.clipit.job_service.dto.JobRequest;
+import com.clipit.job_service.dto.SizeEstimate;
+import com.clipit.job_service.dto.VideoFormat;
 import com.clipit.job_service.entity.Job;
+import com.clipit.job_service.entity.JobStatus;
+import com.clipit.job_service.pipeline.Pipeline;
+import com.clipit.job_service.pipeline.PipelineEngine;
+import com.clipit.job_service.pipeline.Stage;
 import com.clipit.job_service.repository.JobRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
 public class JobProcessorService {
 
+    public static final String HLS_PLAYLIST = "index.m3u8";
+
     @Autowired
     private JobRepository jobRepository;
 
+    @Autowired
+    private JobWatchdogService jobWatchdogService;
+
+    @Autowired
+    private BandwidthGovernor bandwidthGovernor;
+
+    @Autowired
+    private JobTimelineService jobTimelineService;
+
+    @Autowired
+    private DiskAdmissionService diskAdmissionService;
+
+    @Autowired
+    private FormatService formatService;
+
+    @Autowired
+    private StartupMetrics startupMetrics;
+
+    @Autowired
+    private JobLogService jobLogService;
+
+    @Autowired
+    private PlatformGuard platformGuard;
+
+    @Autowired
+    private CpuBudget cpuBudget;
+
+    @Autowired
+    private WebhookService webhookService;
+
+    @Autowired
+    private DownloadResumeService downloadResumeService;
+
+    @Autowired
+    private ResourceAccountingService resourceAccountingService;
+
+    @Autowired
+    private UploadService uploadService;
+
+    @Autowired
+    private PipelineEngine pipelineEngine;
+
+    @Autowired
+    private PrefetchService prefetchService;
+
     @Value("${app.tools.yt-dlp}")
     private String ytDlpPath;
 
@@ -34,140 +100,460 @@ public class JobProcessorService {
     @Value("${app.storage.output-dir}")
     private String outputDir;
 
-    @Async
-    public void processJob(String externalId, JobRequest request) {
+    @Value("${app.download.concurrent-fragments:4}")
+    private int concurrentFragments;
+
+    @Value("${app.hls.segment-seconds:4}")
+    private int hlsSegmentSeconds;
+
+    @Value("${app.scheduler.download-mbps:50}")
+    private double schedulerDownloadMbps;
+
+    @Value("${app.streaming.enabled:true}")
+    private boolean streamingEnabled;
+
+    @Value("${app.admission.fallback-estimate-gb:2}")
+    private long fallbackEstimateGb;
+
+    @Value("${app.parallel.min-duration-seconds:600}")
+    private int parallelMinDurationSeconds;
+
+    @Value("${app.parallel.chunks:0}")
+    private int parallelChunks; // 0 = one chunk per NVENC session
+
+    @Value("${app.parallel.nvenc-sessions:3}")
+    private int nvencSessions; // concurrent encode sessions the GPU allows (consumer cards: 3-5)
+
+    // Shared by all jobs, so concurrent long jobs split the encode sessions instead of multiplying them
+    private ForkJoinPool transcodePool;
+
+    @PostConstruct
+    public void init() {
+        transcodePool = new ForkJoinPool(Math.max(1, nvencSessions));
+    }
+
+    // Encoder settings used below (-b:v 5M, -b:a 192k), also used to size outputs up front
+    private static final double VIDEO_BITRATE = 5_000_000;
+    private static final double AUDIO_BITRATE = 192_000;
+
+    // Rough seconds of work per second of media, for scheduling: NVENC 1080p, audio encode, stream copy
+    private static final double VIDEO_COST_FACTOR = 0.25;
+    private static final double AUDIO_COST_FACTOR = 0.02;
+    private static final double COPY_COST_FACTOR = 0.005;
+    private static final double UNKNOWN_DURATION_SECONDS = 600;
+
+    private static final Pattern SPEED_PATTERN = Pattern.compile("at\\s+(\\d+(?:\\.\\d+)?)([KMG]?)i?B/s");
+
+    private static final Pattern FFMPEG_SPEED_PATTERN = Pattern.compile("speed=\\s*(\\d+(?:\\.\\d+)?x)");
+
+    private static final Pattern DURATION_PATTERN = Pattern.compile("Duration:\\s*(\\d{2}):(\\d{2}):(\\d{2}\\.\\d{2})");
+
+    private static final Pattern AUDIO_CODEC_PATTERN = Pattern.compile("Stream #\\S+.*?: Audio: (\\w+)");
+
+    /**
+     * Runs a job on the calling thread. JobScheduler decides when, and passes the
+     * source estimate it already looked up for costing (null if unavailable).
+     */
+    public void processJob(String externalId, JobRequest request, SizeEstimate estimate) {
         Job job = jobRepository.findByExternalId(externalId).orElse(null);
         if (job == null) {
             System.err.println("Job not found for externalId: " + externalId);
             return;
         }
+        startupMetrics.markJobStarted();
 
-        updateStatus(job, "DOWNLOADING", 0);
+        // Cancelled while still waiting for a worker thread
+        if (job.getStatus() == JobStatus.CANCELLED) {
+            diskAdmissionService.release(externalId);
+            return;
+        }
 
         // Ensure directories exist
         new File(tempDir).mkdirs();
         new File(outputDir).mkdirs();
 
-        String fileBaseName = externalId;
-        String videoActualPath = null;
-        String audioActualPath = null;
+        // Single-stream jobs can pipe yt-dlp straight into ffmpeg and never touch temp-dir
+        boolean streaming = canStream(request, estimate);
+
+        String mode = request.isAudioOnly() ? "audio" : request.isVideoOnly() ? "video" : "merge";
+        jobWatchdogService.register(externalId, mode);
+        job.setMode(mode);
+
+        updateStatus(job, JobStatus.DOWNLOADING, 0);
+
+        // Uploaded sources are already in temp-dir and take the place of both downloads
+        String uploadPath = request.getUploadId() != null ? uploadService.getPath(request.getUploadId()) : null;
+
+        // Default to mp3 for audio-only, mp4 for the video modes
+        String format = (request.getFormat() != null && !request.getFormat().isEmpty()) ? request.getFormat()
+                : request.isAudioOnly() ? "mp3" : "mp4";
+
+        PipelineEngine.Listener listener = new PipelineEngine.Listener() {
+            @Override
+            public boolean isCancelled() {
+                return jobWatchdogService.isCancelled(externalId);
+            }
+
+            @Override
+            public void onStart(Stage stage) {
+                jobLogService.append(externalId, "[pipeline] " + stage.getName());
+                if (stage.getResource() == Stage.Resource.CPU) {
+                    updateStatus(job, JobStatus.PROCESSING, 0);
+                }
+            }
+
+            @Override
+            public void onWaiting(Stage stage) {
+                jobWatchdogService.touch(externalId); // queued, not stalled
+            }
+        };
 
         try {
             // Validate request based on mode
             if (request.isAudioOnly() && request.isVideoOnly()) {
                 throw new RuntimeException("Cannot set both isAudioOnly and isVideoOnly to true");
             }
+            if (!request.isAudioOnly() && uploadPath == null && (request.getVideoId() == null || request.getVideoId().isEmpty())) {
+                throw new RuntimeException("videoId is required for " + (request.isVideoOnly() ? "video-only" : "merge") + " mode");
+            }
+
+            String finalOutputPath = resolveOutputPath(externalId, format, request);
 
-            if (request.isAudioOnly()) {
-                // AUDIO ONLY MODE
-                audioActualPath = downloadAudioOnly(fileBaseName, request, job);
-                if (audioActualPath == null) {
-                    throw new RuntimeException("Audio download failed");
+            String outputPath = null;
+            if (streaming) {
+                outputPath = pipelineEngine.run(buildStreamingPipeline(format, finalOutputPath, request, estimate, job), listener);
+            }
+            if (outputPath == null) {
+                // Admitted without temp space if it was going to stream
+                if (!diskAdmissionService.reserveTemp(externalId, estimateDiskUsage(request, estimate, false)[0])) {
+                    throw new RuntimeException("Not enough space in temp-dir for the download");
                 }
+                outputPath = pipelineEngine.run(buildPipeline(format, uploadPath, finalOutputPath, request, job), listener);
+            }
 
-                updateStatus(job, "PROCESSING", 0);
+            if (outputPath != null) {
+                job.setFilePath(outputPath);
+                jobTimelineService.addBytes(externalId, getOutputBytes(outputPath));
+                updateStatus(job, JobStatus.COMPLETED, 100);
+            } else {
+                updateStatus(job, JobStatus.FAILED, 0);
+            }
 
-                // Determine output format (default to mp3 for audio-only)
-                String format = (request.getFormat() != null && !request.getFormat().isEmpty()) ? request.getFormat() : "mp3";
-                String finalOutputPath = outputDir + fileBaseName + "." + format;
+        } catch (Exception e) {
+            if (!jobWatchdogService.isCancelled(externalId)) {
+                System.err.println("Job processing failed for externalId: " + externalId);
+                e.printStackTrace();
+                jobLogService.append(externalId, "[job] " + e);
+                updateStatus(job, JobStatus.FAILED, 0);
+            }
+        } finally {
+            JobStatus cancelStatus = jobWatchdogService.getCancelStatus(externalId);
+            jobWatchdogService.unregister(externalId);
+            diskAdmissionService.release(externalId);
+            resourceAccountingService.finish(job);
+            jobRepository.save(job);
 
-                // Process audio (trim if needed, convert format)
-                boolean success = processAudioOnly(audioActualPath, finalOutputPath, request, job);
+            // Failed jobs keep their downloads and partials in temp-dir, so a retry can resume them
+            if (job.getStatus() == JobStatus.COMPLETED) {
+                downloadResumeService.discard(externalId);
+            }
 
-                if (success) {
-                    job.setFilePath(finalOutputPath);
-                    updateStatus(job, "COMPLETED", 100);
-                } else {
-                    updateStatus(job, "FAILED", 0);
-                }
+            if (cancelStatus != null) {
+                cleanupAfterKill(externalId, cancelStatus);
+                job.setFilePath(null);
+                updateStatus(job, cancelStatus, 0);
+            }
 
-            } else if (request.isVideoOnly()) {
-                // VIDEO ONLY MODE
-                if (request.getVideoId() == null || request.getVideoId().isEmpty()) {
-                    throw new RuntimeException("videoId is required for video-only mode");
-                }
+            // Saved by updateStatus if the job failed
+            jobLogService.discard(externalId);
+        }
+    }
 
-                videoActualPath = downloadVideoOnly(fileBaseName, request, job);
-                if (videoActualPath == null) {
-                    throw new RuntimeException("Video download failed");
-                }
+    // --- PIPELINES ---
 
-                updateStatus(job, "PROCESSING", 0);
+    /**
+     * The job as a stage graph: its sources (downloads or the upload) feed one ffmpeg stage.
+     * Merge jobs download video and audio at the same time. A new job type is a new graph here.
+     */
+    private Pipeline buildPipeline(String format, String uploadPath, String outputPath, JobRequest request, Job job) {
+        if (request.isAudioOnly()) {
+            // Download a source stream that already has the target codec if there is one
+            String targetCodec = getTargetAudioCodec(request.isHls() ? "m3u8" : format);
+            Stage audio = getSourceStage("audio", getAudioFormatSelector(targetCodec), uploadPath, request, job);
+
+            // Trim if needed, remux or convert format
+            return new Pipeline(new Stage("encode-audio", Stage.Resource.CPU,
+                    inputs -> processAudioOnly(inputs.get(0), outputPath, targetCodec, request, job) ? outputPath : null,
+                    audio));
+        }
 
-                // Determine output format (default to mp4 for video-only)
-                String format = (request.getFormat() != null && !request.getFormat().isEmpty()) ? request.getFormat() : "mp4";
-                String finalOutputPath = outputDir + fileBaseName + "." + format;
+        Stage video = getSourceStage("video", getVideoFormatSelector(request.getVideoId(), request.getResolution()),
+                uploadPath, request, job);
+        if (request.isVideoOnly()) {
+            // Trim if needed, re-encode with GPU
+            return new Pipeline(new Stage("encode-video", Stage.Resource.CPU,
+                    inputs -> processVideoOnly(inputs.get(0), outputPath, request, job) ? outputPath : null,
+                    video));
+        }
 
-                // Process video (trim if needed, re-encode with GPU)
-                boolean success = processVideoOnly(videoActualPath, finalOutputPath, request, job);
+        // An upload has both tracks in one file
+        Stage audio = uploadPath != null ? video : getSourceStage("audio", "bestaudio", null, request, job);
+        return new Pipeline(new Stage("merge", Stage.Resource.CPU,
+                inputs -> mergeVideoAndAudio(inputs.get(0), inputs.get(1), outputPath, request, job) ? outputPath : null,
+                video, audio));
+    }
 
-                if (success) {
-                    job.setFilePath(finalOutputPath);
-                    updateStatus(job, "COMPLETED", 100);
-                } else {
-                    updateStatus(job, "FAILED", 0);
+    /**
+     * The upload, or a download into {temp-dir}{id}_{kind}. Downloads of the same stream by jobs
+     * running at the same time are shared, the later jobs get a hardlink to the first one's file.
+     */
+    private Stage getSourceStage(String kind, String selector, String uploadPath, JobRequest request, Job job) {
+        if (uploadPath != null) {
+            return new Stage("upload", Stage.Resource.IO, inputs -> {
+                if (!new File(uploadPath).exists()) {
+                    throw new RuntimeException("Upload " + request.getUploadId() + " is no longer available");
                 }
+                return uploadPath;
+            });
+        }
 
-            } else {
-                // MERGE MODE (Default: Video + Audio)
-                if (request.getVideoId() == null || request.getVideoId().isEmpty()) {
-                    throw new RuntimeException("videoId is required for merge mode");
-                }
+        String base = tempDir + job.getExternalId() + "_" + kind;
+        return new Stage("download-" + kind, Stage.Resource.NETWORK, inputs -> {
+            // Downloaded (or started) while the user was choosing options: continue from there
+            if (prefetchService.adopt(request.getYoutubeUrl(), selector, base)) {
+                jobLogService.append(job.getExternalId(), "[job] Using the prefetched " + kind + " stream");
+            }
+            String path = runYtDlp(selector, base + ".%(ext)s", request.getYoutubeUrl(), job);
+            if (path == null) {
+                throw new RuntimeException(("audio".equals(kind) ? "Audio" : "Video") + " download failed");
+            }
+            return path;
+        }).shared(request.getYoutubeUrl() + "|" + selector, base);
+    }
 
-                String videoOutputTemplate = tempDir + fileBaseName + "_video.%(ext)s";
-                String audioOutputTemplate = tempDir + fileBaseName + "_audio.%(ext)s";
+    // yt-dlp piped into ffmpeg as a single stage, null if either side failed (see streamToFfmpeg)
+    private Pipeline buildStreamingPipeline(String format, String outputPath, JobRequest request, SizeEstimate estimate,
+            Job job) {
+        String selector;
+        List<String> command;
+        if (request.isAudioOnly()) {
+            String targetCodec = getTargetAudioCodec(request.isHls() ? "m3u8" : format);
+            selector = getAudioFormatSelector(targetCodec);
+            command = buildAudioCommand("pipe:0", outputPath, targetCodec, targetCodec.equals(estimate.getAudioCodec()), request);
+        } else {
+            selector = getVideoFormatSelector(request.getVideoId(), request.getResolution());
+            command = buildVideoCommand("pipe:0", outputPath, request);
+        }
+        return new Pipeline(new Stage("stream", Stage.Resource.NETWORK,
+                inputs -> streamToFfmpeg(selector, command, estimate.getSourceBytes(), request, job) ? outputPath : null));
+    }
 
-                updateStatus(job, "DOWNLOADING", 0);
-                
-                // Use smart format selector with ID preference and resolution fallback
-                String videoFormat = getVideoFormatSelector(request.getVideoId(), request.getResolution());
-                videoActualPath = runYtDlp(videoFormat, videoOutputTemplate, request.getYoutubeUrl(), job);
-                if (videoActualPath == null) {
-                    throw new RuntimeException("Video download failed");
-                }
+    /**
+     * Called by the scheduler before dispatching: reserves the job's estimated temp/output bytes if
+     * both volumes have room now. False leaves the job QUEUED; throws if it can never be admitted.
+     */
+    public boolean tryAdmit(String externalId, String userId, JobRequest request, SizeEstimate estimate) throws Exception {
+        long[] usage = estimateDiskUsage(request, estimate, canStream(request, estimate));
+        return diskAdmissionService.tryAdmit(externalId, userId, usage[0], usage[1]);
+    }
 
-                // Download audio with best audio format
-                audioActualPath = runYtDlp("bestaudio", audioOutputTemplate, request.getYoutubeUrl(), job);
-                if (audioActualPath == null) {
-                    throw new RuntimeException("Audio download failed");
-                }
+    // Fails a queued job the scheduler couldn't admit (over quota, larger than the volume)
+    public void reject(String externalId, String reason) {
+        jobRepository.findByExternalId(externalId).ifPresent(job -> {
+            System.err.println("Job not admitted for externalId: " + externalId + " - " + reason);
+            jobLogService.append(externalId, "[admission] " + reason);
+            updateStatus(job, JobStatus.FAILED, 0);
+            jobLogService.discard(externalId);
+        });
+    }
 
-                updateStatus(job, "PROCESSING", 0);
+    /**
+     * Starts prefetching what a job for this lookup most likely downloads: the top format with
+     * the Dashboard's default (merge) selectors, i.e. its video stream and bestaudio.
+     */
+    public void prefetch(String userId, String url, FormatsResponse formats) {
+        if (!prefetchService.isEnabled() || formats.getVideoFormats() == null || formats.getVideoFormats().isEmpty()
+                || platformGuard.isOpen(platformGuard.getPlatform(url))) {
+            return;
+        }
+        VideoFormat top = formats.getVideoFormats().get(0);
+        for (String selector : List.of(getVideoFormatSelector(top.getId(), top.getResolution()), "bestaudio")) {
+            prefetchService.start(userId, url, selector,
+                    (outputTemplate, rateLimitKb) -> buildYtDlpCommand(selector, outputTemplate, url, rateLimitKb));
+        }
+    }
 
-                // Merge video and audio
-                String format = (request.getFormat() != null && !request.getFormat().isEmpty()) ? request.getFormat() : "mp4";
-                String finalOutputPath = outputDir + fileBaseName + "." + format;
+    /**
+     * Resolves the streams this job will download (same selectors as the download itself)
+     * and reads their size, duration and audio codec. Null if the metadata isn't available.
+     */
+    public SizeEstimate estimateSource(JobRequest request) {
+        String format = (request.getFormat() != null && !request.getFormat().isEmpty()) ? request.getFormat()
+                : request.isAudioOnly() ? "mp3" : "mp4";
+        String audioSelector = getAudioFormatSelector(getTargetAudioCodec(request.isHls() ? "m3u8" : format));
+        String videoSelector = getVideoFormatSelector(request.getVideoId(), request.getResolution());
+
+        if (request.getUploadId() != null) {
+            return estimateUpload(request.getUploadId());
+        }
 
-                boolean success = mergeVideoAndAudio(videoActualPath, audioActualPath, finalOutputPath, request, job);
+        String selector = request.isAudioOnly() ? audioSelector
+                : request.isVideoOnly() ? videoSelector
+                : videoSelector + "+bestaudio";
 
-                if (success) {
-                    job.setFilePath(finalOutputPath);
-                    updateStatus(job, "COMPLETED", 100);
-                } else {
-                    updateStatus(job, "FAILED", 0);
-                }
+        try {
+            return formatService.estimateSize(request.getYoutubeUrl(), selector);
+        } catch (Exception e) {
+            System.err.println("Size estimate failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Uploads are probed locally, there is no format metadata to look up
+    private SizeEstimate estimateUpload(String uploadId) {
+        String path = uploadService.getPath(uploadId);
+        try {
+            return new SizeEstimate(new File(path).length(), probeDuration(path), probeAudioCodec(path));
+        } catch (Exception e) {
+            System.err.println("Size estimate failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns {tempBytes, outputBytes}. Video modes keep the downloaded streams plus the
+     * encoded intermediates (chunks / merge) on temp at the same time, hence twice the source.
+     * Streaming jobs need no temp space. Outputs are sized from our encoder bitrates over the trimmed duration.
+     */
+    private long[] estimateDiskUsage(JobRequest request, SizeEstimate estimate, boolean streaming) {
+        if (estimate == null) {
+            long fallbackBytes = fallbackEstimateGb * 1024 * 1024 * 1024;
+            return new long[] { fallbackBytes, fallbackBytes };
+        }
+
+        double clipSeconds = getClipSeconds(request, estimate.getDurationSeconds());
+
+        long sourceBytes = estimate.getSourceBytes();
+        long tempBytes = streaming ? 0 : request.isAudioOnly() ? sourceBytes : sourceBytes * 2;
+        if (request.getUploadId() != null) {
+            tempBytes -= sourceBytes; // already there
+        }
+
+        long outputBytes;
+        if (request.isAudioOnly()) {
+            double fraction = estimate.getDurationSeconds() > 0 ? clipSeconds / estimate.getDurationSeconds() : 1;
+            outputBytes = Math.max((long) (sourceBytes * fraction), (long) (AUDIO_BITRATE / 8 * clipSeconds));
+        } else {
+            double bitrate = request.isVideoOnly() ? VIDEO_BITRATE : VIDEO_BITRATE + AUDIO_BITRATE;
+            outputBytes = (long) (bitrate / 8 * clipSeconds);
+        }
+
+        return new long[] { tempBytes, outputBytes };
+    }
+
+    /**
+     * Rough wall-clock seconds a job will take: download at app.scheduler.download-mbps plus
+     * encode time from per-mode realtime factors, scaled by resolution. Only used to order
+     * jobs against each other, so it needs to be proportional rather than accurate.
+     */
+    public double estimateCost(JobRequest request, SizeEstimate estimate) {
+        double sourceSeconds = (estimate != null && estimate.getDurationSeconds() > 0) ? estimate.getDurationSeconds()
+                : UNKNOWN_DURATION_SECONDS;
+        double clipSeconds = getClipSeconds(request, sourceSeconds);
+
+        // The whole source is downloaded even when trimming
+        double downloadSeconds = (estimate != null && estimate.getSourceBytes() > 0)
+                ? estimate.getSourceBytes() * 8 / (schedulerDownloadMbps * 1_000_000)
+                : sourceSeconds * (request.isAudioOnly() ? AUDIO_BITRATE : VIDEO_BITRATE) / (schedulerDownloadMbps * 1_000_000);
+
+        double processSeconds;
+        if (request.isAudioOnly()) {
+            String format = (request.getFormat() != null && !request.getFormat().isEmpty()) ? request.getFormat() : "mp3";
+            String targetCodec = getTargetAudioCodec(request.isHls() ? "m3u8" : format);
+            boolean remux = estimate != null && targetCodec.equals(estimate.getAudioCodec());
+            processSeconds = clipSeconds * (remux ? COPY_COST_FACTOR : AUDIO_COST_FACTOR);
+        } else {
+            processSeconds = clipSeconds * VIDEO_COST_FACTOR * getPixelScale(request.getResolution());
+            if (!request.isVideoOnly()) {
+                processSeconds += clipSeconds * AUDIO_COST_FACTOR;
             }
+        }
+        return downloadSeconds + processSeconds;
+    }
 
+    // Pixels relative to 1080p, "1920x1080" style; unknown resolutions count as 1080p
+    private double getPixelScale(String resolution) {
+        try {
+            String[] parts = resolution.split("x");
+            return Math.max(0.25, Double.parseDouble(parts[0]) * Double.parseDouble(parts[1]) / (1920.0 * 1080));
         } catch (Exception e) {
-            System.err.println("Job processing failed for externalId: " + externalId);
-            e.printStackTrace();
-            updateStatus(job, "FAILED", 0);
-        } finally {
-            // Cleanup temporary files
-            cleanupTempFiles(videoActualPath, audioActualPath);
+            return 1;
         }
     }
 
-    private void updateStatus(Job job, String status, int progress) {
+    private double getClipSeconds(JobRequest request, double sourceSeconds) {
+        double clipSeconds = sourceSeconds;
+        if (request.getEndTime() != null && !request.getEndTime().isEmpty()) {
+            clipSeconds = Math.min(clipSeconds, parseTimestamp(request.getEndTime()));
+        }
+        if (request.getStartTime() != null && !request.getStartTime().isEmpty()) {
+            clipSeconds = Math.max(0, clipSeconds - parseTimestamp(request.getStartTime()));
+        }
+        return clipSeconds;
+    }
+
+    // "HH:MM:SS", "MM:SS" or plain seconds
+    private double parseTimestamp(String timestamp) {
+        double seconds = 0;
+        for (String part : timestamp.trim().split(":")) {
+            seconds = seconds * 60 + Double.parseDouble(part);
+        }
+        return seconds;
+    }
+
+    private void updateStatus(Job job, JobStatus status, int progress) {
         // Only update if status changed OR progress increased by at least 1%
         // This prevents spamming the Database with 100 updates per second
-        if (!status.equals(job.getStatus()) || progress > job.getProgress()) {
-            job.setStatus(status);
-            job.setProgress(progress);
-            jobRepository.save(job);
+        // Locked per job: chunked transcodes report progress from several threads
+        synchronized (job) {
+            JobStatus previousStatus = job.getStatus();
+            if (!JobStatus.isAllowed(previousStatus, status)) {
+                // e.g. a cancel that lands after the job completed
+                System.err.println("Ignoring status change " + previousStatus + " -> " + status + " for " + job.getExternalId());
+                return;
+            }
+            if (status != previousStatus || progress > job.getProgress()) {
+                job.setStatus(status);
+                job.setProgress(progress);
+                jobRepository.save(job);
+                jobWatchdogService.touch(job.getExternalId());
+
+                if (status != previousStatus) {
+                    jobTimelineService.recordTransition(job, previousStatus);
+                    if (status == JobStatus.FAILED) {
+                        jobLogService.save(job.getExternalId());
+                    }
+                    if (status.isTerminal()) {
+                        webhookService.enqueue(job);
+                    }
+                }
+            }
         }
     }
 
+    /**
+     * Single-file jobs write to outputs/{id}.{format}. HLS jobs get their own
+     * directory holding the playlist and segments, served while ffmpeg is still running.
+     */
+    private String resolveOutputPath(String fileBaseName, String format, JobRequest request) {
+        if (request.isHls()) {
+            File hlsDir = new File(outputDir + fileBaseName);
+            hlsDir.mkdirs();
+            return hlsDir.getPath() + File.separator + HLS_PLAYLIST;
+        }
+        return outputDir + fileBaseName + "." + format;
+    }
+
     /**
      * Converts user format selection to yt-dlp format selector with fallback
      * Tries specific format ID first, then falls back to resolution-based selector
@@ -202,165 +588,561 @@ public class JobProcessorService {
         return format.toString();
     }
 
-    // --- DOWNLOAD METHODS ---
-
-    private String downloadAudioOnly(String fileBaseName, JobRequest request, Job job) throws Exception {
-        String audioOutputTemplate = tempDir + fileBaseName + "_audio.%(ext)s";
-        return runYtDlp("bestaudio", audioOutputTemplate, request.getYoutubeUrl(), job);
+    /**
+     * Maps the requested container to the audio codec (ffmpeg name) it should end up with
+     */
+    private String getTargetAudioCodec(String format) {
+        switch (format) {
+            case "mp3": return "mp3";
+            case "wav": return "pcm_s16le";
+            case "opus":
+            case "ogg":
+            case "webm": return "opus";
+            default: return "aac"; // m4a, HLS and anything else
+        }
     }
 
-    private String downloadVideoOnly(String fileBaseName, JobRequest request, Job job) throws Exception {
-        String videoOutputTemplate = tempDir + fileBaseName + "_video.%(ext)s";
-        
-        // Use smart format selector with ID preference and resolution fallback
-        String format = getVideoFormatSelector(request.getVideoId(), request.getResolution());
-        return runYtDlp(format, videoOutputTemplate, request.getYoutubeUrl(), job);
+    /**
+     * Prefers an audio stream that is already in the target codec, so it can be remuxed
+     * instead of re-encoded. Falls back to best audio of any codec.
+     */
+    private String getAudioFormatSelector(String targetCodec) {
+        switch (targetCodec) {
+            case "aac": return "bestaudio[acodec^=mp4a]/bestaudio";
+            case "opus": return "bestaudio[acodec=opus]/bestaudio";
+            case "mp3": return "bestaudio[acodec=mp3]/bestaudio";
+            default: return "bestaudio";
+        }
     }
 
     // --- PROCESSING METHODS ---
 
-    private boolean processAudioOnly(String audioPath, String outputPath, JobRequest request, Job job) throws Exception {
-        List<String> command = new ArrayList<>();
-        command.add(ffmpegPath);
-        command.add("-y");
+    private boolean processAudioOnly(String audioPath, String outputPath, String targetCodec, JobRequest request, Job job)
+            throws Exception {
+        // Same codec in and out: a stream copy is enough. Audio packets are ~20ms, so
+        // cutting on packet boundaries is as precise as a trim needs to be.
+        boolean remux = targetCodec.equals(probeAudioCodec(audioPath));
 
-        if (request.getStartTime() != null && !request.getStartTime().isEmpty()) {
-            command.add("-ss");
-            command.add(request.getStartTime());
-        }
+        return executeFfmpegCommand(buildAudioCommand(audioPath, outputPath, targetCodec, remux, request), job);
+    }
 
-        command.add("-i");
-        command.add(audioPath);
+    private List<String> buildAudioCommand(String inputPath, String outputPath, String targetCodec, boolean remux,
+            JobRequest request) {
+        List<String> command = new ArrayList<>(List.of(ffmpegPath, "-y"));
+        addInput(command, inputPath, request);
+        addEndTime(command, request);
 
-        if (request.getEndTime() != null && !request.getEndTime().isEmpty()) {
-            command.add("-to");
-            command.add(request.getEndTime());
-        }
+        // Drop cover art / video streams some audio sources carry
+        command.add("-vn");
+
+        addAudioEncoding(command, targetCodec, remux);
+        addHlsOptions(command, outputPath);
+        command.add(outputPath);
+
+        return command;
+    }
 
+    // -c:a for the target codec, or a stream copy when the source already has it
+    private void addAudioEncoding(List<String> command, String targetCodec, boolean remux) {
         command.add("-c:a");
-        if (outputPath.endsWith(".mp3")) {
+        if (remux) {
+            command.add("copy");
+        } else if (targetCodec.equals("mp3")) {
             command.add("libmp3lame");
             command.add("-q:a");
             command.add("2");
-        } else if (outputPath.endsWith(".m4a")) {
+        } else if (targetCodec.equals("opus")) {
+            command.add("libopus");
+            command.add("-b:a");
+            command.add("160k");
+        } else if (targetCodec.equals("pcm_s16le")) {
+            command.add("pcm_s16le");
+        } else {
             command.add("aac");
             command.add("-b:a");
             command.add("192k");
-        } else {
-            if (outputPath.endsWith(".wav")) {
-                command.add("pcm_s16le");
-            } else {
-                command.add("aac");
-                command.add("-b:a");
-                command.add("192k");
+        }
+    }
+
+    private boolean processVideoOnly(String videoPath, String outputPath, JobRequest request, Job job) throws Exception {
+        if (canTranscodeInChunks(request)) {
+            double duration = probeDuration(videoPath);
+            if (duration >= parallelMinDurationSeconds) {
+                return transcodeInChunks(videoPath, null, duration, outputPath, request, job);
             }
         }
 
+        return executeFfmpegCommand(buildVideoCommand(videoPath, outputPath, request), job);
+    }
+
+    private List<String> buildVideoCommand(String inputPath, String outputPath, JobRequest request) {
+        List<String> command = new ArrayList<>(List.of(ffmpegPath, "-y"));
+        addInput(command, inputPath, request);
+        addEndTime(command, request);
+        addVideoEncoding(command, request);
+
+        addHlsOptions(command, outputPath);
         command.add(outputPath);
 
-        return executeFfmpegCommand(command, job);
+        return command;
     }
 
-    private boolean processVideoOnly(String videoPath, String outputPath, JobRequest request, Job job) throws Exception {
-        List<String> command = new ArrayList<>();
-        command.add(ffmpegPath);
-        command.add("-y");
-
+    // The start time goes before -i, so ffmpeg seeks the input instead of decoding up to it
+    private void addInput(List<String> command, String inputPath, JobRequest request) {
         if (request.getStartTime() != null && !request.getStartTime().isEmpty()) {
             command.add("-ss");
             command.add(request.getStartTime());
         }
-
         command.add("-i");
-        command.add(videoPath);
+        command.add(inputPath);
+    }
 
+    private void addEndTime(List<String> command, JobRequest request) {
         if (request.getEndTime() != null && !request.getEndTime().isEmpty()) {
             command.add("-to");
             command.add(request.getEndTime());
         }
+    }
+
+    // Scale to the requested resolution and encode on the GPU at VIDEO_BITRATE
+    private void addVideoEncoding(List<String> command, JobRequest request) {
+        addVideoEncoding(command, request, "h264_nvenc");
+    }
 
+    // libx264 is the fallback when the GPU has no encode session left for a chunked encode
+    private void addVideoEncoding(List<String> command, JobRequest request, String encoder) {
         if (request.getResolution() != null && !request.getResolution().isEmpty()) {
             command.add("-vf");
             command.add("scale=" + request.getResolution());
         }
 
         command.add("-c:v");
-        command.add("h264_nvenc");
+        command.add(encoder);
         command.add("-preset");
-        command.add("p4");
+        command.add(encoder.equals("libx264") ? "veryfast" : "p4");
         command.add("-b:v");
         command.add("5M");
+    }
+
+    private boolean mergeVideoAndAudio(String videoPath, String audioPath, String outputPath, JobRequest request, Job job)
+            throws Exception {
+        if (canTranscodeInChunks(request)) {
+            double duration = probeDuration(videoPath);
+            if (duration >= parallelMinDurationSeconds) {
+                return transcodeInChunks(videoPath, audioPath, duration, outputPath, request, job);
+            }
+        }
 
+        List<String> command = new ArrayList<>(List.of(ffmpegPath, "-y"));
+        addInput(command, videoPath, request);
+        addInput(command, audioPath, request);
+        addEndTime(command, request);
+        addVideoEncoding(command, request);
+        addAudioEncoding(command, "aac", false);
+
+        addHlsOptions(command, outputPath);
         command.add(outputPath);
 
         return executeFfmpegCommand(command, job);
     }
 
-    private boolean mergeVideoAndAudio(String videoPath, String audioPath, String outputPath, JobRequest request, Job job)
-            throws Exception {
-        List<String> command = new ArrayList<>();
-        command.add(ffmpegPath);
-        command.add("-y");
+    // --- STREAMING (DISK-LESS) PIPELINE ---
 
-        if (request.getStartTime() != null && !request.getStartTime().isEmpty()) {
-            command.add("-ss");
-            command.add(request.getStartTime());
+    /**
+     * Audio-only and video-only jobs have a single input, so yt-dlp can write to stdout and
+     * ffmpeg read from stdin. Long untrimmed videos still go through temp-dir so they can be chunked.
+     */
+    private boolean canStream(JobRequest request, SizeEstimate estimate) {
+        if (!streamingEnabled || estimate == null || request.getUploadId() != null
+                || !(request.isAudioOnly() || request.isVideoOnly())) {
+            return false;
         }
+        // A prefetched stream is already (partly) in temp-dir
+        if (request.isVideoOnly() && prefetchService.isPrefetched(request.getYoutubeUrl(),
+                getVideoFormatSelector(request.getVideoId(), request.getResolution()))) {
+            return false;
+        }
+        return !(request.isVideoOnly() && canTranscodeInChunks(request)
+                && estimate.getDurationSeconds() >= parallelMinDurationSeconds);
+    }
 
-        command.add("-i");
-        command.add(videoPath);
+    /**
+     * Pipes yt-dlp's stdout into ffmpeg's stdin. Writes block while ffmpeg is behind, so the
+     * OS pipe buffers are the only buffering and a slow encode throttles the download.
+     * Progress is bytes piped vs. the estimated source size. Returns false if either side
+     * failed, so the caller can fall back to the temp-dir pipeline (e.g. an MP4 whose index is at the end).
+     */
+    private boolean streamToFfmpeg(String formatSelector, List<String> ffmpegCommand, long expectedBytes,
+            JobRequest request, Job job) throws Exception {
+        String externalId = job.getExternalId();
+        long rateLimitKb = bandwidthGovernor.acquire(externalId);
+        CpuBudget.Allotment allotment = cpuBudget.acquire();
 
-        if (request.getStartTime() != null && !request.getStartTime().isEmpty()) {
-            command.add("-ss");
-            command.add(request.getStartTime());
+        try {
+            Process ffmpeg = startProcess(cpuBudget.apply(ffmpegCommand, allotment), job);
+            Process ytDlp = startProcess(buildYtDlpCommand(formatSelector, "-", request.getYoutubeUrl(), rateLimitKb), job, false);
+
+            // With -o - yt-dlp logs (and reports progress) on stderr, ffmpeg logs on its merged stdout
+            Thread ytDlpLog = startLogDrain(ytDlp.getErrorStream(), "[yt-dlp] ", externalId);
+            Thread ffmpegLog = startLogDrain(ffmpeg.getInputStream(), "[ffmpeg] ", externalId);
+
+            long piped = 0;
+            byte[] buffer = new byte[256 * 1024];
+            try (InputStream in = ytDlp.getInputStream(); OutputStream out = ffmpeg.getOutputStream()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    piped += read;
+
+                    if (expectedBytes > 0) {
+                        updateStatus(job, JobStatus.DOWNLOADING, (int) Math.min(99, piped * 100 / expectedBytes));
+                    }
+                }
+            } catch (IOException e) {
+                // ffmpeg went away (broken pipe), yt-dlp has nowhere left to write
+                ytDlp.toHandle().descendants().forEach(ProcessHandle::destroyForcibly);
+                ytDlp.destroyForcibly();
+            }
+
+            int ytDlpExit = ytDlp.waitFor();
+            int ffmpegExit = ffmpeg.waitFor();
+            ytDlpLog.join();
+            ffmpegLog.join();
+            jobWatchdogService.detach(externalId, ytDlp);
+            jobWatchdogService.detach(externalId, ffmpeg);
+            jobTimelineService.addBytes(externalId, piped);
+
+            if (ytDlpExit != 0 || ffmpegExit != 0) {
+                System.err.println("Streaming pipeline failed (yt-dlp " + ytDlpExit + ", ffmpeg " + ffmpegExit
+                        + "), falling back to temp-dir for " + externalId);
+                jobLogService.append(externalId, "[job] streaming failed (yt-dlp " + ytDlpExit + ", ffmpeg " + ffmpegExit
+                        + "), retrying via temp-dir");
+                return false;
+            }
+            return true;
+        } finally {
+            cpuBudget.release(allotment);
+            bandwidthGovernor.release(externalId);
         }
+    }
 
-        command.add("-i");
-        command.add(audioPath);
+    private Thread startLogDrain(InputStream stream, String prefix, String externalId) {
+        Thread thread = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    jobLogService.append(externalId, prefix + line);
 
-        if (request.getEndTime() != null && !request.getEndTime().isEmpty()) {
-            command.add("-to");
-            command.add(request.getEndTime());
-        }
+                    Matcher speedMatcher = SPEED_PATTERN.matcher(line);
+                    if (speedMatcher.find()) {
+                        bandwidthGovernor.reportSpeed(externalId, parseBytesPerSecond(speedMatcher));
+                    }
+                }
+            } catch (IOException e) {
+                // process killed, nothing left to log
+            }
+        }, "log-" + externalId);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
 
-        if (request.getResolution() != null && !request.getResolution().isEmpty()) {
-            command.add("-vf");
-            command.add("scale=" + request.getResolution());
+    // --- PARALLEL (CHUNKED) TRANSCODING ---
+
+    /**
+     * Chunking only works on the whole source: a trim window would need frame-accurate
+     * cuts that a keyframe split can't give, and HLS already streams a single encode.
+     */
+    private boolean canTranscodeInChunks(JobRequest request) {
+        boolean trimmed = (request.getStartTime() != null && !request.getStartTime().isEmpty())
+                || (request.getEndTime() != null && !request.getEndTime().isEmpty());
+        return !trimmed && !request.isHls();
+    }
+
+    /**
+     * Reads the container duration from ffmpeg's input banner (no output = exit 1, which is expected).
+     */
+    private double probeDuration(String mediaPath) throws Exception {
+        Matcher matcher = DURATION_PATTERN.matcher(probeMedia(mediaPath));
+        return matcher.find() ? parseSeconds(matcher) : 0;
+    }
+
+    // Codec of the first audio stream, e.g. "aac", "opus", "mp3" (null if there is none)
+    private String probeAudioCodec(String mediaPath) throws Exception {
+        Matcher matcher = AUDIO_CODEC_PATTERN.matcher(probeMedia(mediaPath));
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private String probeMedia(String mediaPath) throws Exception {
+        ProcessBuilder pb = new ProcessBuilder(ffmpegPath, "-hide_banner", "-i", mediaPath);
+        pb.redirectErrorStream(true);
+        Process process = pb.start();
+
+        StringBuilder banner = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                banner.append(line).append('\n');
+            }
         }
+        process.waitFor();
+        return banner.toString();
+    }
 
-        command.add("-c:v");
-        command.add("h264_nvenc");
-        command.add("-preset");
-        command.add("p4");
-        command.add("-b:v");
-        command.add("5M");
+    /**
+     * Splits the video at keyframes (stream copy), encodes the chunks concurrently on the
+     * shared pool, then concatenates them losslessly and muxes the audio back in.
+     */
+    private boolean transcodeInChunks(String videoPath, String audioPath, double duration, String outputPath,
+            JobRequest request, Job job) throws Exception {
+        File chunkDir = new File(tempDir + job.getExternalId() + "_chunks");
+        chunkDir.mkdirs();
 
-        command.add("-c:a");
-        command.add("aac");
-        command.add("-b:a");
-        command.add("192k");
+        try {
+            int chunkCount = parallelChunks > 0 ? parallelChunks : transcodePool.getParallelism();
+            long segmentSeconds = (long) Math.ceil(duration / chunkCount);
+
+            // 1. Split on keyframes, no re-encode
+            List<String> split = new ArrayList<>(List.of(ffmpegPath, "-y", "-i", videoPath,
+                    "-map", "0:v:0", "-c", "copy",
+                    "-f", "segment", "-segment_time", String.valueOf(segmentSeconds), "-reset_timestamps", "1",
+                    chunkDir.getPath() + File.separator + "chunk_%03d.mkv"));
+            // Split and concat report no percentage, but they still show the watchdog the job is alive
+            BiConsumer<Double, Double> touch = (current, total) -> jobWatchdogService.touch(job.getExternalId());
+            if (!executeFfmpegCommand(split, job, touch)) {
+                return false;
+            }
 
-        command.add(outputPath);
+            File[] chunks = chunkDir.listFiles((dir, name) -> name.startsWith("chunk_"));
+            if (chunks == null || chunks.length == 0) {
+                return false;
+            }
+            Arrays.sort(chunks);
 
-        return executeFfmpegCommand(command, job);
+            List<File> encodedChunks = new ArrayList<>();
+            for (int i = 0; i < chunks.length; i++) {
+                encodedChunks.add(new File(chunkDir, "encoded_" + String.format("%03d", i) + ".mp4"));
+            }
+
+            // 2. Encode every chunk in parallel. The concat below copies the stream and keeps only the first
+            // chunk's SPS/PPS, so all chunks must come from the same encoder: one NVENC failure re-encodes them all
+            if (!encodeChunks(chunks, encodedChunks, "h264_nvenc", duration, request, job)) {
+                if (jobWatchdogService.isCancelled(job.getExternalId())) {
+                    return false;
+                }
+                // Usually "OpenEncodeSessionEx failed": other jobs hold the GPU's sessions
+                jobLogService.append(job.getExternalId(), "[job] NVENC failed on a chunk, encoding all chunks with libx264");
+                if (!encodeChunks(chunks, encodedChunks, "libx264", duration, request, job)) {
+                    return false;
+                }
+            }
+
+            // 3. Concatenate (stream copy) and add the audio track
+            File concatList = new File(chunkDir, "concat.txt");
+            try (PrintWriter writer = new PrintWriter(concatList)) {
+                for (File encoded : encodedChunks) {
+                    writer.println("file '" + encoded.getAbsolutePath().replace("'", "'\\''") + "'");
+                }
+            }
+
+            List<String> concat = new ArrayList<>(List.of(ffmpegPath, "-y",
+                    "-f", "concat", "-safe", "0", "-i", concatList.getPath()));
+            if (audioPath != null) {
+                concat.addAll(List.of("-i", audioPath, "-map", "0:v:0", "-map", "1:a:0"));
+                addAudioEncoding(concat, "aac", false);
+            }
+            concat.add("-c:v");
+            concat.add("copy");
+            concat.add(outputPath);
+
+            return executeFfmpegCommand(concat, job, touch);
+        } finally {
+            File[] leftovers = chunkDir.listFiles();
+            if (leftovers != null) {
+                cleanupTempFiles(Arrays.stream(leftovers).map(File::getPath).toArray(String[]::new));
+            }
+            chunkDir.delete();
+        }
+    }
+
+    /**
+     * Encodes chunk i into encodedChunks[i] with one encoder, reporting the sum of encoded seconds as
+     * job progress. After a failure no further chunk starts, and it only returns once every chunk that
+     * did start has finished, since the caller deletes the chunk directory next.
+     */
+    private boolean encodeChunks(File[] chunks, List<File> encodedChunks, String encoder, double duration,
+            JobRequest request, Job job) throws Exception {
+        double[] encodedSeconds = new double[chunks.length];
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        for (int i = 0; i < chunks.length; i++) {
+            final int index = i;
+            File chunk = chunks[i];
+            File encoded = encodedChunks.get(i);
+            BiConsumer<Double, Double> onProgress = (current, total) -> {
+                encodedSeconds[index] = current;
+                int percent = (int) ((Arrays.stream(encodedSeconds).sum() / duration) * 100);
+                updateStatus(job, JobStatus.PROCESSING, Math.min(percent, 99));
+            };
+            results.add(transcodePool.submit(() -> {
+                if (failed.get()) {
+                    return false;
+                }
+                try {
+                    if (!executeFfmpegCommand(buildChunkCommand(chunk, encoded, request, encoder), job, onProgress)) {
+                        failed.set(true);
+                        return false;
+                    }
+                    return true;
+                } catch (Exception e) {
+                    failed.set(true);
+                    throw e;
+                }
+            }));
+        }
+
+        Exception error = null;
+        for (Future<Boolean> result : results) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        return !failed.get();
     }
 
+    private List<String> buildChunkCommand(File chunk, File encoded, JobRequest request, String encoder) {
+        List<String> command = new ArrayList<>(List.of(ffmpegPath, "-y", "-i", chunk.getPath()));
+        addVideoEncoding(command, request, encoder);
+        command.add(encoded.getPath());
+        return command;
+    }
 
+    /**
+     * Switches the ffmpeg muxer to HLS when the output is a playlist.
+     * Keyframes are forced on segment boundaries so every segment has the same length,
+     * and the "event" playlist type lets players start before the job finishes.
+     */
+    private void addHlsOptions(List<String> command, String outputPath) {
+        if (!outputPath.endsWith(".m3u8")) {
+            return;
+        }
+
+        String segmentDir = new File(outputPath).getParent();
+
+        if (command.contains("-c:v")) {
+            command.add("-force_key_frames");
+            command.add("expr:gte(t,n_forced*" + hlsSegmentSeconds + ")");
+        }
+
+        command.add("-f");
+        command.add("hls");
+        command.add("-hls_time");
+        command.add(String.valueOf(hlsSegmentSeconds));
+        command.add("-hls_playlist_type");
+        command.add("event");
+        command.add("-hls_segment_filename");
+        command.add(segmentDir + File.separator + "segment_%05d.ts");
+    }
+
+    /**
+     * Downloads with up to app.platform.max-attempts tries. Failures are classified from yt-dlp's
+     * ERROR lines: unavailable media isn't retried, throttling backs off longer than network
+     * errors, and rejections feed the platform's circuit breaker. A partial download left by an
+     * earlier run is continued with the format it started with (see DownloadResumeService).
+     */
     private String runYtDlp(String formatId, String outputTemplate, String url, Job job) throws Exception {
+        String platform = platformGuard.getPlatform(url);
+        String format = downloadResumeService.prepare(outputTemplate, formatId, url);
+        // {id}_video / {id}_audio: merge jobs run both downloads at once, each gets its own share
+        String downloadId = new File(outputTemplate).getName().replace(".%(ext)s", "");
+        boolean resumed = !format.equals(formatId);
+
+        for (int attempt = 1; ; attempt++) {
+            if (platformGuard.isOpen(platform)) {
+                throw new RuntimeException("Platform " + platform + " is rejecting downloads, try again later");
+            }
+
+            // Fair share of the node-wide bandwidth budget
+            long rateLimitKb = bandwidthGovernor.acquire(downloadId);
+            StringBuilder errors = new StringBuilder();
+            String downloadedPath;
+            try {
+                List<String> command = buildYtDlpCommand(format, outputTemplate, url, rateLimitKb);
+                downloadedPath = readYtDlpOutput(startProcess(command, job), job, downloadId, errors);
+            } finally {
+                bandwidthGovernor.release(downloadId);
+            }
+
+            if (downloadedPath != null && resumed
+                    && (!downloadResumeService.verify(outputTemplate, downloadedPath) || probeDuration(downloadedPath) <= 0)) {
+                jobLogService.append(job.getExternalId(), "[job] Resumed download failed its integrity check, starting over");
+                format = downloadResumeService.restart(outputTemplate, formatId, url);
+                resumed = false;
+                continue;
+            }
+            if (downloadedPath != null) {
+                platformGuard.recordSuccess(platform);
+                return downloadedPath;
+            }
+            if (jobWatchdogService.isCancelled(job.getExternalId())) {
+                return null;
+            }
+
+            PlatformGuard.ErrorClass errorClass = platformGuard.classify(errors.toString());
+            platformGuard.recordFailure(platform, errorClass, job.getExternalId());
+            if (!errorClass.isRetryable() && resumed) {
+                // The recorded format may be gone; try once more from scratch with the selector
+                jobLogService.append(job.getExternalId(), "[job] Could not resume with format " + format + ", starting over");
+                format = downloadResumeService.restart(outputTemplate, formatId, url);
+                resumed = false;
+                continue;
+            }
+            if (!errorClass.isRetryable() || attempt >= platformGuard.getMaxAttempts()) {
+                return null;
+            }
+
+            long backoffMillis = platformGuard.getBackoffMillis(errorClass, attempt);
+            jobLogService.append(job.getExternalId(), "[job] " + errorClass + " from " + platform + ", retrying in "
+                    + backoffMillis / 1000 + "s (attempt " + (attempt + 1) + ")");
+            sleepUnlessCancelled(backoffMillis, job);
+        }
+    }
+
+    private void sleepUnlessCancelled(long millis, Job job) throws InterruptedException {
+        long until = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < until) {
+            if (jobWatchdogService.isCancelled(job.getExternalId())) {
+                throw new CancellationException("Job " + job.getExternalId() + " was cancelled");
+            }
+            Thread.sleep(Math.min(1000, Math.max(1, until - System.currentTimeMillis())));
+        }
+    }
+
+    private List<String> buildYtDlpCommand(String formatId, String outputTemplate, String url, long rateLimitKb) {
         List<String> command = new ArrayList<>();
         command.add(ytDlpPath);
         
         // Add headers
-        command.add("--add-header");
-        command.add("Referer:https://www.youtube.com/");
-        
-        // Retry logic
+        if ("youtube".equals(platformGuard.getPlatform(url))) {
+            command.add("--add-header");
+            command.add("Referer:https://www.youtube.com/");
+        }
+
+        // Retry logic: a few quick in-process retries, longer backoff happens per error class in runYtDlp
         command.add("--retries");
-        command.add("15");
+        command.add("3");
         command.add("--fragment-retries");
-        command.add("15");
+        command.add("10");
         command.add("--retry-sleep");
-        command.add("5");  // Wait 5 seconds between retries
+        command.add("exp=1:20");
         
         // User agent
         command.add("--user-agent");
@@ -371,8 +1153,22 @@ public class JobProcessorService {
         // Throttled rate
         command.add("--throttled-rate");
         command.add("50K");  // Lowered threshold
-        
-        
+
+        // Parallel fragment fetching (DASH/HLS sources), throttling is per connection
+        command.add("--concurrent-fragments");
+        command.add(String.valueOf(concurrentFragments));
+
+        if (rateLimitKb > 0) {
+            command.add("--limit-rate");
+            command.add(rateLimitKb + "K");
+        }
+
+        // Records the format picked, so an interrupted download resumes with the same one.
+        // Streams to stdout ("-") can't be resumed and would leave a "-.format" file behind.
+        if (!outputTemplate.equals("-")) {
+            command.addAll(downloadResumeService.getRecordArgs(outputTemplate));
+        }
+
         // Standard flags
         command.add("-f");
         command.add(formatId);
@@ -380,17 +1176,21 @@ public class JobProcessorService {
         command.add(outputTemplate);
         command.add(url);
 
-        ProcessBuilder pb = new ProcessBuilder(command);
-        pb.redirectErrorStream(true);
-        Process process = pb.start();
+        return command;
+    }
 
+    private String readYtDlpOutput(Process process, Job job, String downloadId, StringBuilder errors) throws Exception {
         String downloadedPath = null;
         Pattern percentPattern = Pattern.compile("\\[download\\]\\s+(\\d+\\.\\d+)%");
 
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
             String line;
             while ((line = reader.readLine()) != null) {
-                System.out.println("[yt-dlp] " + line);
+                jobLogService.append(job.getExternalId(), "[yt-dlp] " + line);
+
+                if (line.startsWith("ERROR:")) {
+                    errors.append(line).append('\n');
+                }
 
                 if (line.contains("Destination:")) {
                     downloadedPath = line.substring(line.indexOf("Destination:") + 12).trim();
@@ -404,18 +1204,31 @@ public class JobProcessorService {
                         try {
                             double percentDouble = Double.parseDouble(matcher.group(1));
                             int percent = (int) percentDouble;
-                            updateStatus(job, "DOWNLOADING", percent);
+                            updateStatus(job, JobStatus.DOWNLOADING, percent);
                         } catch (NumberFormatException e) {
                             // ignore
                         }
                     }
+
+                    Matcher speedMatcher = SPEED_PATTERN.matcher(line);
+                    if (speedMatcher.find()) {
+                        bandwidthGovernor.reportSpeed(downloadId, parseBytesPerSecond(speedMatcher));
+                        jobTimelineService.reportSpeed(job.getExternalId(), speedMatcher.group().substring(3).trim());
+                    }
                 }
             }
         }
 
         int exitCode = process.waitFor();
+        jobWatchdogService.detach(job.getExternalId(), process);
+
+        if (downloadedPath != null && new File(downloadedPath).exists()) {
+            jobTimelineService.addBytes(job.getExternalId(), new File(downloadedPath).length());
+        }
+
         if (exitCode != 0) {
             System.err.println("yt-dlp failed with exit code: " + exitCode);
+            jobLogService.append(job.getExternalId(), "[job] yt-dlp exited with " + exitCode);
             if (downloadedPath != null && new File(downloadedPath).exists()) {
                 return downloadedPath;
             }
@@ -426,59 +1239,153 @@ public class JobProcessorService {
     }
 
     private boolean executeFfmpegCommand(List<String> command, Job job) throws Exception {
-        ProcessBuilder pb = new ProcessBuilder(command);
-        pb.redirectErrorStream(true);
-        Process process = pb.start();
+        return executeFfmpegCommand(command, job, (currentSeconds, totalDurationSeconds) -> {
+            int percent = (int) ((currentSeconds / totalDurationSeconds) * 100);
+            // Clamp to 99% so we don't prematurely say 100% until it's actually done
+            if (percent > 99) percent = 99;
+
+            updateStatus(job, JobStatus.PROCESSING, percent);
+        });
+    }
+
+    /**
+     * Runs ffmpeg and reports (current seconds, input duration) for every progress line.
+     */
+    private boolean executeFfmpegCommand(List<String> command, Job job, BiConsumer<Double, Double> onProgress)
+            throws Exception {
+        // Thread count and priority from the node's CPU budget, held until ffmpeg exits
+        CpuBudget.Allotment allotment = cpuBudget.acquire();
+        jobLogService.append(job.getExternalId(), "[job] ffmpeg gets " + allotment);
+        try {
+            return runFfmpeg(cpuBudget.apply(command, allotment), job, onProgress);
+        } finally {
+            cpuBudget.release(allotment);
+        }
+    }
+
+    private boolean runFfmpeg(List<String> command, Job job, BiConsumer<Double, Double> onProgress) throws Exception {
+        Process process = startProcess(command, job);
 
         double totalDurationSeconds = 0;
-        
-        
-        Pattern durationPattern = Pattern.compile("Duration:\\s*(\\d{2}):(\\d{2}):(\\d{2}\\.\\d{2})");
-        
+
         Pattern timePattern = Pattern.compile("time=(\\d{2}):(\\d{2}):(\\d{2}\\.\\d{2})");
 
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
             String line;
             while ((line = reader.readLine()) != null) {
-                System.out.println("[ffmpeg] " + line);
+                jobLogService.append(job.getExternalId(), "[ffmpeg] " + line);
                 
                 if (totalDurationSeconds == 0) {
-                    Matcher dMatcher = durationPattern.matcher(line);
+                    Matcher dMatcher = DURATION_PATTERN.matcher(line);
                     if (dMatcher.find()) {
-                        int h = Integer.parseInt(dMatcher.group(1));
-                        int m = Integer.parseInt(dMatcher.group(2));
-                        double s = Double.parseDouble(dMatcher.group(3));
-                        totalDurationSeconds = (h * 3600) + (m * 60) + s;
+                        totalDurationSeconds = parseSeconds(dMatcher);
                     }
                 }
 
+                Matcher speedMatcher = FFMPEG_SPEED_PATTERN.matcher(line);
+                if (speedMatcher.find()) {
+                    jobTimelineService.reportSpeed(job.getExternalId(), speedMatcher.group(1));
+                }
+
                 if (totalDurationSeconds > 0) {
                     Matcher tMatcher = timePattern.matcher(line);
                     if (tMatcher.find()) {
-                        int h = Integer.parseInt(tMatcher.group(1));
-                        int m = Integer.parseInt(tMatcher.group(2));
-                        double s = Double.parseDouble(tMatcher.group(3));
-                        double currentSeconds = (h * 3600) + (m * 60) + s;
-
-                        int percent = (int) ((currentSeconds / totalDurationSeconds) * 100);
-                        // Clamp to 99% so we don't prematurely say 100% until it's actually done
-                        if (percent > 99) percent = 99;
-                        
-                        updateStatus(job, "PROCESSING", percent);
+                        onProgress.accept(parseSeconds(tMatcher), totalDurationSeconds);
                     }
                 }
             }
         }
 
         int exitCode = process.waitFor();
+        jobWatchdogService.detach(job.getExternalId(), process);
         if (exitCode != 0) {
             System.err.println("FFmpeg failed with exit code: " + exitCode);
+            jobLogService.append(job.getExternalId(), "[job] ffmpeg exited with " + exitCode);
             return false;
         }
 
         return true;
     }
 
+    /**
+     * Starts a child process and registers it with the watchdog so cancel() can kill it.
+     */
+    private Process startProcess(List<String> command, Job job) throws Exception {
+        return startProcess(command, job, true);
+    }
+
+    private Process startProcess(List<String> command, Job job, boolean mergeStderr) throws Exception {
+        if (jobWatchdogService.isCancelled(job.getExternalId())) {
+            throw new CancellationException("Job " + job.getExternalId() + " was cancelled");
+        }
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectErrorStream(mergeStderr);
+        Process process = pb.start();
+        jobWatchdogService.attach(job.getExternalId(), process);
+        resourceAccountingService.attach(job.getExternalId(), process, command.get(0).equals(ytDlpPath));
+        return process;
+    }
+
+    // Size of the final output, summed over the segments for HLS
+    private long getOutputBytes(String outputPath) {
+        File output = new File(outputPath);
+        if (!outputPath.endsWith(".m3u8")) {
+            return output.length();
+        }
+        File[] files = output.getParentFile().listFiles();
+        return files == null ? 0 : Arrays.stream(files).mapToLong(File::length).sum();
+    }
+
+    // "1.50MiB/s" style yt-dlp speed -> bytes per second
+    private double parseBytesPerSecond(Matcher matcher) {
+        double value = Double.parseDouble(matcher.group(1));
+        switch (matcher.group(2)) {
+            case "K": return value * 1024;
+            case "M": return value * 1024 * 1024;
+            case "G": return value * 1024 * 1024 * 1024;
+            default: return value;
+        }
+    }
+
+    // HH:MM:SS.ss from the first three groups of a Duration/time matcher
+    private double parseSeconds(Matcher matcher) {
+        int h = Integer.parseInt(matcher.group(1));
+        int m = Integer.parseInt(matcher.group(2));
+        double s = Double.parseDouble(matcher.group(3));
+        return (h * 3600) + (m * 60) + s;
+    }
+
+    /**
+     * Killed processes leave .part files, chunk dirs and half-written outputs behind. A user cancel
+     * removes all of it; a watchdog kill ends FAILED like any other failure, so it keeps the
+     * downloads, .part files and .resume/.format sidecars in temp-dir for /retry to resume.
+     */
+    void cleanupAfterKill(String externalId, JobStatus cancelStatus) {
+        if (cancelStatus == JobStatus.CANCELLED) {
+            cleanupPartialFiles(externalId, tempDir, outputDir);
+        } else {
+            cleanupPartialFiles(externalId, outputDir);
+        }
+    }
+
+    // Everything of the job in the given dirs is named after the externalId (files, .part files, chunk and HLS directories)
+    private void cleanupPartialFiles(String externalId, String... dirs) {
+        for (String dir : dirs) {
+            File[] leftovers = new File(dir).listFiles((d, name) -> name.startsWith(externalId));
+            if (leftovers == null) {
+                continue;
+            }
+            for (File leftover : leftovers) {
+                File[] children = leftover.listFiles();
+                if (children != null) {
+                    cleanupTempFiles(Arrays.stream(children).map(File::getPath).toArray(String[]::new));
+                }
+                cleanupTempFiles(leftover.getPath());
+            }
+        }
+    }
+
     private void cleanupTempFiles(String... filePaths) {
         for (String filePath : filePaths) {
             if (filePath != null) {
@@ -0,0 +1,302 @@
+package com.clipit.job_service.service;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.clipit.job_service.dto.JobRequest;
+import com.clipit.job_service.dto.SizeEstimate;
+import com.clipit.job_service.entity.Job;
+import com.clipit.job_service.entity.JobStatus;
+import com.clipit.job_service.repository.JobRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Shortest-job-first queue in front of the job workers, so a short clip doesn't wait behind
+ * long 4K merges. Jobs are ordered by estimated cost minus aging (seconds waited x aging-factor),
+ * so a large job overtakes newer small ones once it has waited about as long as it is expected to run.
+ */
+@Service
+public class JobScheduler {
+
+    @Value("${app.scheduler.workers:8}")
+    private int workers;
+
+    @Value("${app.scheduler.aging-factor:1.0}")
+    private double agingFactor;
+
+    // Metadata lookups for costing run here, so start-job returns right away
+    @Value("${app.scheduler.estimator-threads:4}")
+    private int estimatorThreads;
+
+    // Identifies this instance's jobs (and temp-dir) across restarts; blank = hostname:port
+    @Value("${app.resume.instance-id:}")
+    private String instanceId;
+
+    @Value("${server.port:8082}")
+    private int serverPort;
+
+    @Autowired
+    private JobProcessorService jobProcessorService;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    @Autowired
+    private JobTimelineService jobTimelineService;
+
+    @Autowired
+    private WebhookService webhookService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformGuard platformGuard;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ExecutorService estimatorPool;
+    private ExecutorService workerPool;
+
+    // Guarded by this
+    private final List<QueuedJob> queue = new ArrayList<>();
+    private int running;
+
+    private Counter overtakes;
+
+    @PostConstruct
+    public void init() {
+        if (instanceId == null || instanceId.isEmpty()) {
+            try {
+                instanceId = InetAddress.getLocalHost().getHostName() + ":" + serverPort;
+            } catch (Exception e) {
+                instanceId = "localhost:" + serverPort;
+            }
+        }
+        estimatorPool = Executors.newFixedThreadPool(estimatorThreads);
+        workerPool = Executors.newFixedThreadPool(workers);
+
+        Gauge.builder("clipit.scheduler.queued", this, scheduler -> scheduler.getQueued())
+                .description("Jobs costed and waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("clipit.scheduler.running", this, scheduler -> scheduler.getRunning())
+                .description("Jobs on a worker")
+                .register(meterRegistry);
+        overtakes = Counter.builder("clipit.scheduler.overtakes")
+                .description("Earlier-submitted jobs passed by dispatched shorter jobs")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        estimatorPool.shutdownNow();
+        workerPool.shutdown();
+    }
+
+    // Stores what's needed to run the job again on this instance (call before the job is saved)
+    public void record(Job job, JobRequest request) {
+        try {
+            job.setRequest(objectMapper.writeValueAsString(request));
+        } catch (Exception e) {
+            throw new RuntimeException("Could not store job request", e);
+        }
+        job.setInstanceId(instanceId);
+    }
+
+    /**
+     * Re-queues jobs this instance was queueing or running when it stopped. Their partial
+     * downloads are still in temp-dir, so they continue where they left off.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        List<Job> interrupted = jobRepository.findByInstanceIdAndStatusIn(instanceId, List.of(JobStatus.QUEUED, JobStatus.DOWNLOADING, JobStatus.PROCESSING));
+        for (Job job : interrupted) {
+            JobStatus previousStatus = job.getStatus();
+            JobRequest request = null;
+            try {
+                request = objectMapper.readValue(job.getRequest(), JobRequest.class);
+            } catch (Exception e) {
+                System.err.println("[Scheduler] Can't read request of interrupted job " + job.getExternalId() + ": " + e.getMessage());
+            }
+
+            job.setStatus(request != null ? JobStatus.QUEUED : JobStatus.FAILED);
+            job.setProgress(0);
+            jobRepository.save(job);
+            jobTimelineService.recordTransition(job, previousStatus);
+            if (request != null) {
+                submit(job.getExternalId(), request);
+            } else {
+                webhookService.enqueue(job);
+            }
+        }
+        if (!interrupted.isEmpty()) {
+            System.out.println("[Scheduler] Re-queued " + interrupted.size() + " jobs interrupted by a restart");
+        }
+    }
+
+    public void submit(String externalId, JobRequest request) {
+        long submittedAt = System.currentTimeMillis();
+        estimatorPool.execute(() -> {
+            SizeEstimate estimate = jobProcessorService.estimateSource(request);
+            double cost = jobProcessorService.estimateCost(request, estimate);
+
+            String mode = request.isAudioOnly() ? "audio" : request.isVideoOnly() ? "video" : "merge";
+            DistributionSummary.builder("clipit.scheduler.estimated-cost")
+                    .baseUnit("seconds").tag("mode", mode)
+                    .register(meterRegistry).record(cost);
+
+            String platform = platformGuard.getPlatform(request.getUploadId() != null
+                    ? UploadService.SOURCE_PREFIX + request.getUploadId() : request.getYoutubeUrl());
+            String userId = jobRepository.findByExternalId(externalId).map(Job::getUserId).orElse(null);
+            if (userId == null) {
+                return; // deleted meanwhile
+            }
+            synchronized (this) {
+                queue.add(new QueuedJob(externalId, userId, request, estimate, mode, platform, cost, submittedAt));
+            }
+            dispatch();
+        });
+    }
+
+    // Drops a job that was cancelled while queued; false if it already started (or is still being costed)
+    public synchronized boolean remove(String externalId) {
+        return queue.removeIf(queued -> queued.externalId.equals(externalId));
+    }
+
+    private void dispatch() {
+        while (true) {
+            QueuedJob next;
+            int passed = 0;
+            Map<QueuedJob, String> rejected = new LinkedHashMap<>();
+            synchronized (this) {
+                if (running >= workers || queue.isEmpty()) {
+                    return;
+                }
+                next = pickNext(rejected);
+                queue.removeAll(rejected.keySet());
+                if (next != null) {
+                    queue.remove(next);
+                    passed = (int) queue.stream().filter(queued -> queued.submittedAt < next.submittedAt).count();
+                    running++;
+                }
+            }
+            rejected.forEach((queued, reason) -> jobProcessorService.reject(queued.externalId, reason));
+            if (next == null) {
+                return; // everything queued is for a saturated or open platform, or waits for disk space
+            }
+
+            long waitedMillis = System.currentTimeMillis() - next.submittedAt;
+            Timer.builder("clipit.scheduler.wait").tag("mode", next.mode)
+                    .description("Time from start-job until a worker picked the job up")
+                    .register(meterRegistry).record(waitedMillis, TimeUnit.MILLISECONDS);
+            overtakes.increment(passed);
+            System.out.println("[Scheduler] Dispatching job " + next.externalId + " (" + next.mode + ", est. "
+                    + Math.round(next.cost) + "s, waited " + waitedMillis / 1000 + "s, passed " + passed + " earlier jobs)");
+
+            workerPool.execute(() -> {
+                try {
+                    jobProcessorService.processJob(next.externalId, next.request, next.estimate);
+                } finally {
+                    platformGuard.finish(next.platform, next.externalId);
+                    synchronized (this) {
+                        running--;
+                    }
+                    dispatch();
+                }
+            });
+        }
+    }
+
+    // Deferred jobs (platform limit / open breaker / disk space) get another chance even when nothing
+    // finishes, since cleanup frees space too
+    @Scheduled(fixedDelay = 5000)
+    public void retryDeferred() {
+        dispatch();
+    }
+
+    /**
+     * Lowest cost after aging (ties go to whoever came first) among jobs whose platform can take
+     * one more and whose estimated disk usage fits now. Jobs that can never be admitted go into
+     * rejected with the reason.
+     */
+    private QueuedJob pickNext(Map<QueuedJob, String> rejected) {
+        long now = System.currentTimeMillis();
+        List<QueuedJob> candidates = new ArrayList<>(queue);
+        candidates.sort(Comparator.<QueuedJob>comparingDouble(queued -> queued.cost - agingFactor * (now - queued.submittedAt) / 1000.0)
+                .thenComparingLong(queued -> queued.submittedAt));
+
+        for (QueuedJob queued : candidates) {
+            if (!platformGuard.tryStart(queued.platform, queued.externalId)) {
+                continue;
+            }
+            try {
+                if (jobProcessorService.tryAdmit(queued.externalId, queued.userId, queued.request, queued.estimate)) {
+                    return queued;
+                }
+                if (!queued.waitingForDisk) {
+                    System.out.println("[Admission] Job " + queued.externalId + " waiting for disk space");
+                    queued.waitingForDisk = true;
+                }
+            } catch (Exception e) {
+                rejected.put(queued, e.getMessage());
+            }
+            platformGuard.finish(queued.platform, queued.externalId);
+        }
+        return null;
+    }
+
+    private synchronized int getQueued() {
+        return queue.size();
+    }
+
+    private synchronized int getRunning() {
+        return running;
+    }
+
+    static class QueuedJob {
+        final String externalId;
+        final String userId;
+        final JobRequest request;
+        final SizeEstimate estimate;
+        final String mode;
+        final String platform;
+        final double cost;
+        final long submittedAt;
+        boolean waitingForDisk; // guarded by the scheduler
+
+        QueuedJob(String externalId, String userId, JobRequest request, SizeEstimate estimate, String mode,
+                String platform, double cost, long submittedAt) {
+            this.externalId = externalId;
+            this.userId = userId;
+            this.request = request;
+            this.estimate = estimate;
+            this.mode = mode;
+            this.platform = platform;
+            this.cost = cost;
+            this.submittedAt = submittedAt;
+        }
+    }
+}
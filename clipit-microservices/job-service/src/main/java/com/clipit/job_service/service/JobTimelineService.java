@@ -0,0 +1,131 @@
+package com.clipit.job_service.service;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.clipit.job_service.dto.StageLatency;
+import com.clipit.job_service.entity.Job;
+import com.clipit.job_service.entity.JobEvent;
+import com.clipit.job_service.entity.JobStatus;
+import com.clipit.job_service.repository.JobEventRepository;
+
+/**
+ * Writes a job_events row on every status change and turns them into per-stage latency numbers.
+ * Bytes and tool speed are collected while a stage runs and attached to the event that ends it.
+ */
+@Service
+public class JobTimelineService {
+
+    @Autowired
+    private JobEventRepository jobEventRepository;
+
+    private final Map<String, StageStats> currentStages = new ConcurrentHashMap<>();
+
+    public void addBytes(String externalId, long bytes) {
+        currentStages.computeIfAbsent(externalId, id -> new StageStats()).bytes += bytes;
+    }
+
+    public void reportSpeed(String externalId, String toolSpeed) {
+        currentStages.computeIfAbsent(externalId, id -> new StageStats()).toolSpeed = toolSpeed;
+    }
+
+    public void recordTransition(Job job, JobStatus previousStatus) {
+        StageStats stats = currentStages.remove(job.getExternalId());
+
+        JobEvent event = new JobEvent();
+        event.setExternalId(job.getExternalId());
+        event.setStatus(job.getStatus().name());
+        event.setPreviousStatus(previousStatus != null ? previousStatus.name() : null);
+        event.setPlatform(getPlatform(job.getOriginalUrl()));
+        if (stats != null) {
+            event.setBytes(stats.bytes > 0 ? stats.bytes : null);
+            event.setToolSpeed(stats.toolSpeed);
+        }
+        jobEventRepository.save(event);
+    }
+
+    public List<JobEvent> getTimeline(String externalId) {
+        return jobEventRepository.findByExternalIdOrderByCreatedAtAsc(externalId);
+    }
+
+    /**
+     * p50/p90/p99 seconds per stage over the last `hours`, for all platforms and per platform.
+     * A stage lasts from the event that entered it until the job's next event.
+     */
+    public List<StageLatency> getStageLatencies(int hours) {
+        List<JobEvent> events = jobEventRepository.findByCreatedAtAfterOrderByCreatedAtAsc(LocalDateTime.now().minusHours(hours));
+
+        Map<String, List<JobEvent>> byJob = new LinkedHashMap<>();
+        for (JobEvent event : events) {
+            byJob.computeIfAbsent(event.getExternalId(), id -> new ArrayList<>()).add(event);
+        }
+
+        // "platform|stage" -> durations in seconds
+        Map<String, List<Double>> durations = new TreeMap<>();
+        for (List<JobEvent> jobEvents : byJob.values()) {
+            for (int i = 0; i + 1 < jobEvents.size(); i++) {
+                JobEvent current = jobEvents.get(i);
+                double seconds = Duration.between(current.getCreatedAt(), jobEvents.get(i + 1).getCreatedAt()).toMillis() / 1000.0;
+
+                durations.computeIfAbsent("all|" + current.getStatus(), k -> new ArrayList<>()).add(seconds);
+                durations.computeIfAbsent(current.getPlatform() + "|" + current.getStatus(), k -> new ArrayList<>()).add(seconds);
+            }
+        }
+
+        List<StageLatency> result = new ArrayList<>();
+        for (Map.Entry<String, List<Double>> entry : durations.entrySet()) {
+            String[] key = entry.getKey().split("\\|", 2);
+            List<Double> values = entry.getValue();
+            Collections.sort(values);
+            result.add(new StageLatency(key[0], key[1], values.size(),
+                    percentile(values, 50), percentile(values, 90), percentile(values, 99)));
+        }
+        return result;
+    }
+
+    // Nearest-rank percentile on a sorted list
+    private double percentile(List<Double> sorted, int p) {
+        int rank = (int) Math.ceil(p / 100.0 * sorted.size());
+        return sorted.get(Math.max(rank - 1, 0));
+    }
+
+    // www.youtube.com / m.youtube.com / youtu.be -> youtube
+    static String getPlatform(String url) {
+        if (url != null && url.startsWith(UploadService.SOURCE_PREFIX)) {
+            return "upload";
+        }
+        try {
+            String host = URI.create(url.trim()).getHost();
+            if (host == null) {
+                return "unknown";
+            }
+            host = host.toLowerCase().replaceFirst("^(www\\.|m\\.|mobile\\.)", "");
+            if (host.equals("youtu.be")) {
+                return "youtube";
+            }
+            if (host.equals("twitter.com")) {
+                return "x";
+            }
+            int dot = host.lastIndexOf('.');
+            return dot > 0 ? host.substring(0, dot) : host;
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+
+    private static class StageStats {
+        volatile long bytes;
+        volatile String toolSpeed;
+    }
+}
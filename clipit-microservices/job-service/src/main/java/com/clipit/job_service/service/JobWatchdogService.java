@@ -0,0 +1,150 @@
+package com.clipit.job_service.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.clipit.job_service.entity.JobStatus;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps track of the yt-dlp/ffmpeg processes each running job owns, so a job can be
+ * cancelled from the API or by the watchdog when it stalls or runs past its time budget.
+ */
+@Service
+public class JobWatchdogService {
+
+    @Value("${app.watchdog.stall-seconds:180}")
+    private long stallSeconds;
+
+    @Value("${app.watchdog.max-minutes.audio:15}")
+    private long maxMinutesAudio;
+
+    @Value("${app.watchdog.max-minutes.video:60}")
+    private long maxMinutesVideo;
+
+    @Value("${app.watchdog.max-minutes.merge:90}")
+    private long maxMinutesMerge;
+
+    @Autowired
+    private JobLogService jobLogService;
+
+    private final Map<String, ActiveJob> activeJobs = new ConcurrentHashMap<>();
+
+    public void register(String externalId, String mode) {
+        activeJobs.put(externalId, new ActiveJob(mode));
+    }
+
+    public void unregister(String externalId) {
+        activeJobs.remove(externalId);
+    }
+
+    public void attach(String externalId, Process process) {
+        ActiveJob activeJob = activeJobs.get(externalId);
+        if (activeJob != null) {
+            activeJob.processes.add(process);
+            // A process started after cancel() slipped through the isCancelled() check
+            if (activeJob.cancelStatus != null) {
+                destroyTree(process);
+            }
+        }
+    }
+
+    public void detach(String externalId, Process process) {
+        ActiveJob activeJob = activeJobs.get(externalId);
+        if (activeJob != null) {
+            activeJob.processes.remove(process);
+        }
+    }
+
+    // Called on every saved progress/status change
+    public void touch(String externalId) {
+        ActiveJob activeJob = activeJobs.get(externalId);
+        if (activeJob != null) {
+            activeJob.lastProgressAt = System.currentTimeMillis();
+        }
+    }
+
+    public boolean isCancelled(String externalId) {
+        return getCancelStatus(externalId) != null;
+    }
+
+    // CANCELLED for user requests, FAILED for watchdog kills; null while the job may keep running
+    public JobStatus getCancelStatus(String externalId) {
+        ActiveJob activeJob = activeJobs.get(externalId);
+        return activeJob != null ? activeJob.cancelStatus : null;
+    }
+
+    /**
+     * Marks the job as cancelled and kills every child process (and its descendants).
+     * Returns false if the job is not running on this node.
+     */
+    public boolean cancel(String externalId, JobStatus finalStatus, String reason) {
+        ActiveJob activeJob = activeJobs.get(externalId);
+        if (activeJob == null) {
+            return false;
+        }
+
+        activeJob.cancelStatus = finalStatus;
+        System.out.println("[Watchdog] Cancelling job " + externalId + ": " + reason);
+        jobLogService.append(externalId, "[watchdog] " + reason);
+
+        for (Process process : activeJob.processes) {
+            destroyTree(process);
+        }
+        return true;
+    }
+
+    // Every 15 seconds: kill jobs that stopped moving or ran out of wall-clock budget
+    @Scheduled(fixedDelay = 15000)
+    public void checkActiveJobs() {
+        long now = System.currentTimeMillis();
+
+        for (Map.Entry<String, ActiveJob> entry : activeJobs.entrySet()) {
+            ActiveJob activeJob = entry.getValue();
+            if (activeJob.cancelStatus != null) {
+                continue;
+            }
+
+            long stalledFor = now - activeJob.lastProgressAt;
+            long runningFor = now - activeJob.startedAt;
+
+            if (stalledFor > stallSeconds * 1000) {
+                cancel(entry.getKey(), JobStatus.FAILED, "no progress for " + (stalledFor / 1000) + "s");
+            } else if (runningFor > getMaxMinutes(activeJob.mode) * 60 * 1000) {
+                cancel(entry.getKey(), JobStatus.FAILED, "exceeded " + getMaxMinutes(activeJob.mode) + " minute budget");
+            }
+        }
+    }
+
+    private long getMaxMinutes(String mode) {
+        switch (mode) {
+            case "audio": return maxMinutesAudio;
+            case "video": return maxMinutesVideo;
+            default: return maxMinutesMerge;
+        }
+    }
+
+    private void destroyTree(Process process) {
+        // Children first, so ffmpeg spawned by yt-dlp doesn't get orphaned
+        process.toHandle().descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    private static class ActiveJob {
+        final String mode;
+        final long startedAt = System.currentTimeMillis();
+        final List<Process> processes = new CopyOnWriteArrayList<>();
+        volatile long lastProgressAt = startedAt;
+        volatile JobStatus cancelStatus;
+
+        ActiveJob(String mode) {
+            this.mode = mode;
+        }
+    }
+}
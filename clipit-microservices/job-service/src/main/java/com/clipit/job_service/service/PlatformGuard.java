@@ -0,0 +1,274 @@
+package com.clipit.job_service.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import com.clipit.job_service.dto.PlatformStatus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-platform (youtube, tiktok, x, ...) running-job limits, retry backoff by error class
+ * and a circuit breaker, so one platform throttling us doesn't tie up every worker.
+ *
+ * Breaker: CLOSED until failure-threshold consecutive rejections (429 / bot checks / 403),
+ * then OPEN for open-seconds (new jobs deferred or failed fast), then HALF_OPEN where a
+ * single trial job decides whether it closes again. The trial is tracked by job id, so jobs
+ * that started before the breaker opened don't end it when they finish.
+ */
+@Service
+public class PlatformGuard {
+
+    public enum ErrorClass {
+        RATE_LIMITED(true, true, 30_000),
+        BLOCKED(true, true, 60_000),
+        NETWORK(true, false, 2_000),
+        UNAVAILABLE(false, false, 0), // private, removed, geo-blocked: retrying won't help
+        UNKNOWN(true, false, 5_000);
+
+        final boolean retryable;
+        final boolean rejection;
+        final long baseBackoffMillis;
+
+        ErrorClass(boolean retryable, boolean rejection, long baseBackoffMillis) {
+            this.retryable = retryable;
+            this.rejection = rejection;
+            this.baseBackoffMillis = baseBackoffMillis;
+        }
+
+        public boolean isRetryable() {
+            return retryable;
+        }
+    }
+
+    // Stay under the watchdog's stall limit while sleeping between attempts
+    private static final long MAX_BACKOFF_MILLIS = 120_000;
+    private static final int WINDOW_SIZE = 100;
+
+    @Value("${app.platform.max-concurrent:4}")
+    private int defaultMaxConcurrent; // per platform, override with app.platform.<platform>.max-concurrent
+
+    @Value("${app.platform.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.platform.breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.platform.breaker.open-seconds:300}")
+    private long openSeconds;
+
+    // true: jobs for an OPEN platform wait in the queue, false: they run and fail fast
+    @Value("${app.platform.breaker.defer:true}")
+    private boolean deferWhenOpen;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Guarded by this
+    private final Map<String, PlatformState> platforms = new TreeMap<>();
+
+    public String getPlatform(String url) {
+        return JobTimelineService.getPlatform(url);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Called by the scheduler before dispatching a job. False if the platform is at its
+     * running-job limit, or its breaker is open (in defer mode) or already running its trial job.
+     */
+    public synchronized boolean tryStart(String platform, String jobId) {
+        PlatformState state = getState(platform);
+        refreshBreaker(state);
+
+        if (state.running >= state.maxConcurrent) {
+            return false;
+        }
+        if ("OPEN".equals(state.breaker) && deferWhenOpen) {
+            return false;
+        }
+        if ("HALF_OPEN".equals(state.breaker)) {
+            if (state.trialJobId != null) {
+                return false;
+            }
+            state.trialJobId = jobId;
+        }
+        state.running++;
+        return true;
+    }
+
+    public synchronized void finish(String platform, String jobId) {
+        PlatformState state = getState(platform);
+        state.running = Math.max(0, state.running - 1);
+        // A trial job that ended without a verdict (cancelled, not admitted) frees the slot for another
+        if (jobId.equals(state.trialJobId)) {
+            state.trialJobId = null;
+        }
+    }
+
+    // Checked before each download attempt
+    public synchronized boolean isOpen(String platform) {
+        PlatformState state = getState(platform);
+        refreshBreaker(state);
+        return "OPEN".equals(state.breaker);
+    }
+
+    // Any success closes the breaker, whether or not it came from the trial job
+    public synchronized void recordSuccess(String platform) {
+        PlatformState state = getState(platform);
+        state.consecutiveRejections = 0;
+        state.trialJobId = null;
+        if (!"CLOSED".equals(state.breaker)) {
+            System.out.println("[Platform] Breaker for " + platform + " closed");
+        }
+        state.breaker = "CLOSED";
+        state.record(true, null);
+        counter(platform, "success").increment();
+    }
+
+    public synchronized void recordFailure(String platform, ErrorClass errorClass, String jobId) {
+        PlatformState state = getState(platform);
+        state.record(false, errorClass);
+        counter(platform, errorClass.name().toLowerCase()).increment();
+
+        if (!errorClass.rejection) {
+            // Says nothing about the platform: only the trial job itself hands the trial on
+            if (jobId.equals(state.trialJobId)) {
+                state.trialJobId = null;
+            }
+            return;
+        }
+
+        state.consecutiveRejections++;
+        if ("HALF_OPEN".equals(state.breaker) || state.consecutiveRejections >= failureThreshold) {
+            state.breaker = "OPEN";
+            state.openUntil = System.currentTimeMillis() + openSeconds * 1000;
+            state.trialJobId = null;
+            System.out.println("[Platform] Breaker for " + platform + " opened for " + openSeconds + "s after "
+                    + errorClass + " (" + state.consecutiveRejections + " rejections in a row)");
+        }
+    }
+
+    // Classifies yt-dlp "ERROR:" output
+    public ErrorClass classify(String errorOutput) {
+        String text = errorOutput == null ? "" : errorOutput.toLowerCase();
+        if (text.contains("429") || text.contains("too many requests") || text.contains("rate-limit")
+                || text.contains("rate limit")) {
+            return ErrorClass.RATE_LIMITED;
+        }
+        if (text.contains("403") || text.contains("sign in to confirm") || text.contains("not a bot")
+                || text.contains("captcha")) {
+            return ErrorClass.BLOCKED;
+        }
+        if (text.contains("video unavailable") || text.contains("private video") || text.contains("404")
+                || text.contains("not available") || text.contains("has been removed") || text.contains("unsupported url")) {
+            return ErrorClass.UNAVAILABLE;
+        }
+        if (text.contains("timed out") || text.contains("connection reset") || text.contains("unable to download")
+                || text.contains("temporary failure") || text.contains("network is unreachable")) {
+            return ErrorClass.NETWORK;
+        }
+        return ErrorClass.UNKNOWN;
+    }
+
+    // Exponential backoff with full jitter: random(0, base * 2^(attempt-1)), capped
+    public long getBackoffMillis(ErrorClass errorClass, int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, errorClass.baseBackoffMillis << Math.min(attempt - 1, 10));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    public synchronized List<PlatformStatus> getStatus() {
+        List<PlatformStatus> result = new ArrayList<>();
+        for (Map.Entry<String, PlatformState> entry : platforms.entrySet()) {
+            PlatformState state = entry.getValue();
+            refreshBreaker(state);
+            result.add(new PlatformStatus(entry.getKey(), state.breaker, state.running, state.maxConcurrent,
+                    state.getSuccessRate(), state.window.size(), state.lastError,
+                    "OPEN".equals(state.breaker) ? state.openUntil : null));
+        }
+        return result;
+    }
+
+    private void refreshBreaker(PlatformState state) {
+        if ("OPEN".equals(state.breaker) && System.currentTimeMillis() >= state.openUntil) {
+            state.breaker = "HALF_OPEN";
+        }
+    }
+
+    private PlatformState getState(String platform) {
+        return platforms.computeIfAbsent(platform, p -> {
+            PlatformState state = new PlatformState(
+                    environment.getProperty("app.platform." + p + ".max-concurrent", Integer.class, defaultMaxConcurrent));
+            Gauge.builder("clipit.platform.breaker", state, s -> "OPEN".equals(s.breaker) ? 2 : "HALF_OPEN".equals(s.breaker) ? 1 : 0)
+                    .tag("platform", p).description("Circuit breaker state (0 closed, 1 half-open, 2 open)")
+                    .register(meterRegistry);
+            Gauge.builder("clipit.platform.running", state, s -> s.running)
+                    .tag("platform", p).description("Running jobs for the platform")
+                    .register(meterRegistry);
+            Gauge.builder("clipit.platform.success.rate", state, this::getSuccessRate)
+                    .tag("platform", p).description("Download success rate over the last " + WINDOW_SIZE + " attempts")
+                    .register(meterRegistry);
+            return state;
+        });
+    }
+
+    // Gauges are read from the metrics thread
+    private synchronized double getSuccessRate(PlatformState state) {
+        return state.getSuccessRate();
+    }
+
+    private Counter counter(String platform, String outcome) {
+        return Counter.builder("clipit.platform.downloads").tag("platform", platform).tag("outcome", outcome)
+                .description("Download attempts by outcome (success or error class)")
+                .register(meterRegistry);
+    }
+
+    private static class PlatformState {
+        final int maxConcurrent;
+        String breaker = "CLOSED"; // CLOSED, OPEN, HALF_OPEN
+        long openUntil;
+        String trialJobId; // the HALF_OPEN trial, null if none is running
+        int consecutiveRejections;
+        int running;
+        String lastError;
+        final ArrayDeque<Boolean> window = new ArrayDeque<>();
+
+        PlatformState(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        void record(boolean success, ErrorClass errorClass) {
+            if (window.size() == WINDOW_SIZE) {
+                window.removeFirst();
+            }
+            window.addLast(success);
+            if (errorClass != null) {
+                lastError = errorClass.name();
+            }
+        }
+
+        double getSuccessRate() {
+            if (window.isEmpty()) {
+                return 1;
+            }
+            long successes = window.stream().filter(Boolean::booleanValue).count();
+            return (double) successes / window.size();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.clipit.job_service.service;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Speculative downloads of the streams a user is most likely to pick, started after a formats
+ * lookup while they choose options. Prefetches run niced, at a fixed share of their own bandwidth
+ * budget, capped per stream (--max-filesize) and in total on disk. They use the same .resume/.format
+ * records as job downloads, so a job for the same URL and selector adopts one by taking over its
+ * files (see DownloadResumeService). Prefetches nobody adopts within ttl-seconds are deleted.
+ */
+@Service
+public class PrefetchService {
+
+    private static final long MB = 1024 * 1024;
+    private static final String PREFIX = "prefetch_";
+
+    @Value("${app.prefetch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.prefetch.max-active:4}")
+    private int maxActive; // running prefetch downloads on the node
+
+    @Value("${app.prefetch.bandwidth-kb:4096}")
+    private long bandwidthKb; // KiB/s for all prefetches, on top of the download budget
+
+    @Value("${app.prefetch.max-stream-mb:500}")
+    private long maxStreamMb;
+
+    @Value("${app.prefetch.disk-budget-mb:2048}")
+    private long diskBudgetMb;
+
+    @Value("${app.prefetch.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${app.storage.temp-dir}")
+    private String tempDir;
+
+    @Autowired
+    private DownloadResumeService downloadResumeService;
+
+    private final boolean windows = System.getProperty("os.name").toLowerCase().contains("windows");
+
+    // "url|selector" -> prefetch, changed under this
+    private final Map<String, Prefetch> prefetches = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts downloading one stream if the budgets allow it. commandBuilder makes the yt-dlp command
+     * from (output template, rate limit in KiB/s). Prefetches of other URLs by the same user are
+     * dropped: they have moved on.
+     */
+    public synchronized void start(String userId, String url, String selector,
+            BiFunction<String, Long, List<String>> commandBuilder) {
+        if (!enabled) {
+            return;
+        }
+        for (Map.Entry<String, Prefetch> entry : prefetches.entrySet()) {
+            if (entry.getValue().userId.equals(userId) && !entry.getValue().url.equals(url)) {
+                discard(entry.getKey(), "user looked up another URL");
+            }
+        }
+
+        String key = url + "|" + selector;
+        Prefetch existing = prefetches.get(key);
+        if (existing != null) {
+            existing.startedAt = System.currentTimeMillis(); // looked up again, keep it longer
+            return;
+        }
+
+        long active = prefetches.values().stream().filter(prefetch -> prefetch.process.isAlive()).count();
+        if (active >= maxActive || getUsedBytes() + maxStreamMb * MB > diskBudgetMb * MB) {
+            System.out.println("[Prefetch] Budget exhausted, not prefetching " + selector + " of " + url);
+            return;
+        }
+
+        String base = tempDir + PREFIX + hash(key);
+        String outputTemplate = base + ".%(ext)s";
+        downloadResumeService.restart(outputTemplate, selector, url);
+
+        List<String> command = new ArrayList<>();
+        if (!windows) {
+            command.addAll(List.of("nice", "-n", "19"));
+        }
+        command.addAll(commandBuilder.apply(outputTemplate, Math.max(1, bandwidthKb / maxActive)));
+        command.addAll(command.size() - 1, List.of("--max-filesize", maxStreamMb + "M"));
+
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            prefetches.put(key, new Prefetch(userId, url, base, process));
+            System.out.println("[Prefetch] Started " + selector + " of " + url);
+        } catch (Exception e) {
+            System.err.println("[Prefetch] Could not start " + selector + " of " + url + ": " + e.getMessage());
+            deleteFiles(base);
+        }
+    }
+
+    public boolean isPrefetched(String url, String selector) {
+        return prefetches.containsKey(url + "|" + selector);
+    }
+
+    /**
+     * Hands the prefetch of this stream (partial or finished) to a job: stops it and renames its
+     * files and records to the job's base ({temp-dir}{id}_video), where runYtDlp resumes or reuses
+     * the download. False if there is no prefetch for it.
+     */
+    public boolean adopt(String url, String selector, String base) {
+        Prefetch prefetch;
+        synchronized (this) {
+            prefetch = prefetches.remove(url + "|" + selector);
+        }
+        if (prefetch == null) {
+            return false;
+        }
+
+        stop(prefetch);
+        List<File> files = getFiles(prefetch.base);
+        String prefetchName = new File(prefetch.base).getName();
+        try {
+            for (File file : files) {
+                File target = new File(base + file.getName().substring(prefetchName.length()));
+                Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (Exception e) {
+            System.err.println("[Prefetch] Could not adopt " + prefetch.base + ": " + e.getMessage());
+            deleteFiles(prefetch.base);
+            return false;
+        }
+        System.out.println("[Prefetch] Adopted " + selector + " of " + url + " (" + files.size() + " files)");
+        return true;
+    }
+
+    // Every 10 seconds: enforce the size cap on running prefetches, drop failed and expired ones
+    @Scheduled(fixedDelay = 10000)
+    public synchronized void evict() {
+        long cutoff = System.currentTimeMillis() - ttlSeconds * 1000;
+        for (Map.Entry<String, Prefetch> entry : prefetches.entrySet()) {
+            Prefetch prefetch = entry.getValue();
+            if (prefetch.startedAt < cutoff) {
+                discard(entry.getKey(), "not used within " + ttlSeconds + "s");
+            } else if (!prefetch.process.isAlive() && prefetch.process.exitValue() != 0) {
+                discard(entry.getKey(), "yt-dlp exited with " + prefetch.process.exitValue());
+            } else if (getFiles(prefetch.base).stream().mapToLong(File::length).sum() > maxStreamMb * MB) {
+                discard(entry.getKey(), "larger than " + maxStreamMb + " MB");
+            }
+        }
+
+        // Left behind by a restart
+        File[] orphans = new File(tempDir).listFiles((dir, name) -> name.startsWith(PREFIX));
+        if (orphans != null) {
+            for (File orphan : orphans) {
+                boolean tracked = prefetches.values().stream()
+                        .anyMatch(prefetch -> orphan.getName().startsWith(new File(prefetch.base).getName() + "."));
+                if (!tracked && orphan.lastModified() < cutoff) {
+                    orphan.delete();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        prefetches.values().forEach(this::stop);
+    }
+
+    private void discard(String key, String reason) {
+        Prefetch prefetch = prefetches.remove(key);
+        if (prefetch != null) {
+            stop(prefetch);
+            deleteFiles(prefetch.base);
+            System.out.println("[Prefetch] Dropped " + key + ": " + reason);
+        }
+    }
+
+    private void stop(Prefetch prefetch) {
+        prefetch.process.toHandle().descendants().forEach(ProcessHandle::destroyForcibly);
+        prefetch.process.destroyForcibly();
+        try {
+            prefetch.process.waitFor(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long getUsedBytes() {
+        return prefetches.values().stream()
+                .flatMap(prefetch -> getFiles(prefetch.base).stream())
+                .mapToLong(File::length)
+                .sum();
+    }
+
+    private void deleteFiles(String base) {
+        getFiles(base).forEach(File::delete);
+    }
+
+    // The download, its partials and both records: everything named base.*
+    private List<File> getFiles(String base) {
+        String name = new File(base).getName();
+        File[] files = new File(tempDir).listFiles((dir, fileName) -> fileName.startsWith(name + "."));
+        return files == null ? List.of() : List.of(files);
+    }
+
+    private String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest).substring(0, 16);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class Prefetch {
+        final String userId;
+        final String url;
+        final String base;
+        final Process process;
+        volatile long startedAt = System.currentTimeMillis();
+
+        Prefetch(String userId, String url, String base, Process process) {
+            this.userId = userId;
+            this.url = url;
+            this.base = base;
+            this.process = process;
+        }
+    }
+}
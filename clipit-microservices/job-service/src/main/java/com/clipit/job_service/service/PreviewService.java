@@ -0,0 +1,275 @@
+package com.clipit.job_service.service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.clipit.job_service.dto.PreviewResponse;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Builds a cheap 240p proxy and a thumbnail filmstrip for picking trim points,
+ * so users don't run full-quality "test" jobs. Results are cached per URL.
+ * Generation runs on a small bounded pool (not the request thread), takes its encoder
+ * threads from the CPU budget and refuses videos longer than max-duration-seconds.
+ */
+@Service
+public class PreviewService {
+
+    public static final String PROXY_FILE = "proxy.mp4";
+    public static final String SPRITE_FILE = "sprite.jpg";
+
+    private static final String META_FILE = "preview.properties";
+    private static final int SPRITE_COLUMNS = 10;
+    private static final int SPRITE_ROWS = 10;
+    private static final int FRAME_WIDTH = 160;
+
+    private static final Pattern DURATION_PATTERN = Pattern.compile("Duration:\\s*(\\d{2}):(\\d{2}):(\\d{2}\\.\\d{2})");
+
+    @Value("${app.tools.yt-dlp}")
+    private String ytDlpPath;
+
+    @Value("${app.tools.ffmpeg}")
+    private String ffmpegPath;
+
+    @Value("${app.storage.preview-dir:previews/}")
+    private String previewDir;
+
+    @Value("${app.preview.workers:2}")
+    private int workers;
+
+    @Value("${app.preview.max-pending:10}")
+    private int maxPending; // queued beyond the workers, more are rejected
+
+    @Value("${app.preview.max-duration-seconds:7200}")
+    private long maxDurationSeconds;
+
+    @Autowired
+    private CpuBudget cpuBudget;
+
+    private ThreadPoolExecutor executor;
+
+    // Concurrent requests for the same URL share one generation
+    private final Map<String, CompletableFuture<PreviewResponse>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(maxPending));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Completes with the cached preview, or once a worker has generated it. Completes with a
+     * RejectedExecutionException when the queue is full, IllegalArgumentException when the video
+     * is too long.
+     */
+    public CompletableFuture<PreviewResponse> getPreview(String url) throws Exception {
+        String previewId = getPreviewId(url);
+
+        PreviewResponse cached = readCached(previewId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<PreviewResponse> future = new CompletableFuture<>();
+        CompletableFuture<PreviewResponse> existing = inFlight.putIfAbsent(previewId, future);
+        if (existing != null) {
+            return existing;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(generate(previewId, url));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(previewId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(previewId);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    // Only hex ids and our two file names, never a path
+    public File getPreviewFile(String previewId, String fileName) {
+        if (!previewId.matches("[0-9a-f]{64}") || !(fileName.equals(PROXY_FILE) || fileName.equals(SPRITE_FILE))) {
+            return null;
+        }
+        File file = new File(previewDir + previewId, fileName);
+        return file.exists() ? file : null;
+    }
+
+    private PreviewResponse generate(String previewId, String url) throws Exception {
+        File dir = new File(previewDir + previewId);
+        dir.mkdirs();
+
+        // 1. Smallest format that still has both audio and video, if the video isn't too long
+        StringBuilder downloadOutput = new StringBuilder();
+        boolean downloaded = run(List.of(ytDlpPath, "--force-ipv4",
+                "-f", "worst[vcodec!=none][acodec!=none]/worst",
+                "--match-filter", "!duration | duration <= " + maxDurationSeconds,
+                "-o", dir.getPath() + File.separator + "source.%(ext)s", url), downloadOutput);
+
+        File[] sources = dir.listFiles((d, name) -> name.startsWith("source.") && !name.endsWith(".part"));
+        if (downloadOutput.indexOf("does not pass filter") >= 0) {
+            dir.delete();
+            throw new IllegalArgumentException("Previews are limited to videos up to " + maxDurationSeconds + " seconds");
+        }
+        if (!downloaded || sources == null || sources.length == 0) {
+            throw new RuntimeException("Preview download failed for " + url);
+        }
+        File source = sources[0];
+
+        try {
+            // 2. 240p proxy, short GOP so seeking while scrubbing stays snappy
+            File proxy = new File(dir, PROXY_FILE);
+            StringBuilder output = new StringBuilder();
+            // -t also caps sources whose duration yt-dlp didn't know
+            boolean encoded = runEncode(List.of(ffmpegPath, "-y", "-i", source.getPath(),
+                    "-t", String.valueOf(maxDurationSeconds),
+                    "-vf", "scale=-2:240",
+                    "-c:v", "libx264", "-preset", "ultrafast", "-crf", "32", "-g", "12",
+                    "-c:a", "aac", "-b:a", "64k",
+                    "-movflags", "+faststart", proxy.getPath()), output);
+            if (!encoded) {
+                throw new RuntimeException("Preview encode failed for " + url);
+            }
+
+            double duration = 0;
+            Matcher matcher = DURATION_PATTERN.matcher(output);
+            if (matcher.find()) {
+                duration = Integer.parseInt(matcher.group(1)) * 3600 + Integer.parseInt(matcher.group(2)) * 60
+                        + Double.parseDouble(matcher.group(3));
+            }
+
+            // 3. One filmstrip image covering the whole video
+            int interval = Math.max(1, (int) Math.ceil(duration / (SPRITE_COLUMNS * SPRITE_ROWS)));
+            boolean sprite = runEncode(List.of(ffmpegPath, "-y", "-i", proxy.getPath(),
+                    "-vf", "fps=1/" + interval + ",scale=" + FRAME_WIDTH + ":-2,tile=" + SPRITE_COLUMNS + "x" + SPRITE_ROWS,
+                    "-frames:v", "1", "-q:v", "5", new File(dir, SPRITE_FILE).getPath()), null);
+            if (!sprite) {
+                throw new RuntimeException("Preview sprite failed for " + url);
+            }
+
+            PreviewResponse preview = new PreviewResponse(previewId, duration, interval, SPRITE_COLUMNS, SPRITE_ROWS, FRAME_WIDTH);
+            writeMeta(dir, preview);
+            return preview;
+        } finally {
+            source.delete();
+        }
+    }
+
+    // ffmpeg with threads and priority from the node's CPU budget, like job encodes
+    private boolean runEncode(List<String> command, StringBuilder output) throws Exception {
+        CpuBudget.Allotment allotment = cpuBudget.acquire();
+        try {
+            return run(cpuBudget.apply(command, allotment), output);
+        } finally {
+            cpuBudget.release(allotment);
+        }
+    }
+
+    private boolean run(List<String> command, StringBuilder output) throws Exception {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectErrorStream(true);
+        Process process = pb.start();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (output != null) {
+                    output.append(line).append('\n');
+                }
+            }
+        }
+        return process.waitFor() == 0;
+    }
+
+    // The metadata file is written last, so its presence means the preview is complete
+    private PreviewResponse readCached(String previewId) throws Exception {
+        File meta = new File(previewDir + previewId, META_FILE);
+        if (!meta.exists()) {
+            return null;
+        }
+
+        Properties props = new Properties();
+        try (FileReader reader = new FileReader(meta)) {
+            props.load(reader);
+        }
+        return new PreviewResponse(previewId,
+                Double.parseDouble(props.getProperty("duration")),
+                Integer.parseInt(props.getProperty("spriteInterval")),
+                SPRITE_COLUMNS, SPRITE_ROWS, FRAME_WIDTH);
+    }
+
+    private void writeMeta(File dir, PreviewResponse preview) throws Exception {
+        Properties props = new Properties();
+        props.setProperty("duration", String.valueOf(preview.getDuration()));
+        props.setProperty("spriteInterval", String.valueOf(preview.getSpriteInterval()));
+        try (FileWriter writer = new FileWriter(new File(dir, META_FILE))) {
+            props.store(writer, null);
+        }
+    }
+
+    private String getPreviewId(String url) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(url.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Cron expression: At minute 30 of every hour, drop previews older than 24h
+    @Scheduled(cron = "0 30 * * * *")
+    public void evictOldPreviews() {
+        File[] previews = new File(previewDir).listFiles(File::isDirectory);
+        if (previews == null) {
+            return;
+        }
+
+        long cutoff = System.currentTimeMillis() - 24 * 60 * 60 * 1000L;
+        int count = 0;
+        for (File preview : previews) {
+            if (preview.lastModified() < cutoff && !inFlight.containsKey(preview.getName())) {
+                File[] files = preview.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+                preview.delete();
+                count++;
+            }
+        }
+
+        System.out.println("[Cleanup] Evicted " + count + " cached previews.");
+    }
+}
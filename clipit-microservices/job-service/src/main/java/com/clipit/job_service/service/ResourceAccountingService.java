@@ -0,0 +1,208 @@
+package com.clipit.job_service.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.clipit.job_service.dto.ResourceUsage;
+import com.clipit.job_service.entity.Job;
+import com.clipit.job_service.repository.JobRepository;
+
+/**
+ * Samples each job's yt-dlp/ffmpeg process trees from /proc while they run (Linux only) and
+ * stores the totals on the job: CPU time, peak RSS of the whole tree, bytes read/written to
+ * storage, and network bytes. Per-process network counters don't exist in /proc, so network
+ * is what the yt-dlp trees wrote (to temp-dir or the ffmpeg pipe), i.e. what they received.
+ * Whatever a process does after its last sample is not counted.
+ */
+@Service
+public class ResourceAccountingService {
+
+    // USER_HZ, the unit of utime/stime in /proc/<pid>/stat (100 on every mainstream kernel)
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+    private static final long PAGE_SIZE = 4096;
+
+    @Value("${app.accounting.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    private final boolean procAvailable = Files.isReadable(Path.of("/proc/self/io"));
+    private final Map<String, Usage> usages = new ConcurrentHashMap<>();
+
+    // network = true for yt-dlp, whose output is what it downloaded
+    public void attach(String externalId, Process process, boolean network) {
+        if (enabled && procAvailable) {
+            usages.computeIfAbsent(externalId, id -> new Usage()).roots.add(new Root(process, network));
+        }
+    }
+
+    // Every second (app.accounting.sample-ms): read the counters of every live process in each tree
+    @Scheduled(fixedDelayString = "${app.accounting.sample-ms:1000}")
+    public void sample() {
+        for (Usage usage : usages.values()) {
+            long rssBytes = 0;
+            for (Root root : usage.roots) {
+                if (!root.process.isAlive()) {
+                    usage.roots.remove(root);
+                    continue;
+                }
+                List<ProcessHandle> tree = new ArrayList<>();
+                tree.add(root.process.toHandle());
+                root.process.toHandle().descendants().forEach(tree::add);
+
+                // Each process's counters include its reaped children, so summing the live tree counts everything once
+                long[] treeTotals = new long[4];
+                for (ProcessHandle handle : tree) {
+                    long[] counters = readCounters(handle.pid(), root.network);
+                    if (counters != null) {
+                        for (int i = 0; i < treeTotals.length; i++) {
+                            treeTotals[i] += counters[i];
+                        }
+                        rssBytes += counters[4];
+                        usage.peakRssBytes = Math.max(usage.peakRssBytes, counters[5]);
+                    }
+                }
+
+                // A child exiting between reads can dip a sample, so keep the highest seen
+                long[] totals = usage.trees.computeIfAbsent(root.process.pid(), pid -> new long[4]);
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] = Math.max(totals[i], treeTotals[i]);
+                }
+            }
+            usage.peakRssBytes = Math.max(usage.peakRssBytes, rssBytes);
+        }
+    }
+
+    /**
+     * Stores the job's totals on it (the caller saves it) and stops tracking the job.
+     */
+    public void finish(Job job) {
+        Usage usage = usages.remove(job.getExternalId());
+        if (usage == null) {
+            return;
+        }
+
+        long[] totals = new long[4];
+        for (long[] counters : usage.trees.values()) {
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += counters[i];
+            }
+        }
+        job.setCpuMillis(totals[0] * 1000 / CLOCK_TICKS_PER_SECOND);
+        job.setReadBytes(totals[1]);
+        job.setWriteBytes(totals[2]);
+        job.setNetworkBytes(totals[3]);
+        job.setPeakRssBytes(usage.peakRssBytes);
+    }
+
+    /**
+     * Resource totals of the jobs created in the last `hours`, per user and per mode, in windows
+     * of windowMinutes (0 = one window for the whole range). Only userId's jobs unless it is null.
+     */
+    public List<ResourceUsage> getUsage(int hours, int windowMinutes, String userId) {
+        LocalDateTime since = LocalDateTime.now().minusHours(hours);
+        long windowMillis = windowMinutes > 0 ? windowMinutes * 60_000L : hours * 3600_000L;
+        List<Job> jobs = userId == null ? jobRepository.findByCreatedAtAfterAndCpuMillisNotNull(since)
+                : jobRepository.findByUserIdAndCreatedAtAfterAndCpuMillisNotNull(userId, since);
+
+        // "windowStart|user|id" or "windowStart|mode|mode" -> totals
+        Map<String, ResourceUsage> groups = new TreeMap<>();
+        for (Job job : jobs) {
+            long offset = Duration.between(since, job.getCreatedAt()).toMillis() / windowMillis * windowMillis;
+            LocalDateTime windowStart = since.plusNanos(offset * 1_000_000);
+
+            add(groups, windowStart, "user", job.getUserId(), job);
+            add(groups, windowStart, "mode", job.getMode(), job);
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    private void add(Map<String, ResourceUsage> groups, LocalDateTime windowStart, String groupBy, String key, Job job) {
+        ResourceUsage usage = groups.computeIfAbsent(windowStart + "|" + groupBy + "|" + key,
+                k -> new ResourceUsage(windowStart, groupBy, key, 0, 0, 0, 0, 0, 0));
+        usage.setJobs(usage.getJobs() + 1);
+        usage.setCpuSeconds(usage.getCpuSeconds() + job.getCpuMillis() / 1000.0);
+        usage.setMaxPeakRssBytes(Math.max(usage.getMaxPeakRssBytes(), nullToZero(job.getPeakRssBytes())));
+        usage.setReadBytes(usage.getReadBytes() + nullToZero(job.getReadBytes()));
+        usage.setWriteBytes(usage.getWriteBytes() + nullToZero(job.getWriteBytes()));
+        usage.setNetworkBytes(usage.getNetworkBytes() + nullToZero(job.getNetworkBytes()));
+    }
+
+    private long nullToZero(Long value) {
+        return value != null ? value : 0;
+    }
+
+    /**
+     * {cpu ticks, storage bytes read, storage bytes written, network bytes, RSS bytes, peak RSS bytes},
+     * or null if the process is gone. The first four include the process's reaped children.
+     */
+    private long[] readCounters(long pid, boolean network) {
+        try {
+            String stat = Files.readString(Path.of("/proc", String.valueOf(pid), "stat"));
+            // Fields after "(comm)": state is field 3, utime 14, stime 15, cutime 16, cstime 17, rss 24
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            long cpuTicks = 0;
+            for (int i = 11; i <= 14; i++) {
+                cpuTicks += Long.parseLong(fields[i]);
+            }
+            long rssBytes = Long.parseLong(fields[21]) * PAGE_SIZE;
+
+            long readBytes = 0, writeBytes = 0, writtenChars = 0;
+            for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(pid), "io"))) {
+                if (line.startsWith("read_bytes:")) {
+                    readBytes = parseValue(line);
+                } else if (line.startsWith("write_bytes:")) {
+                    writeBytes = parseValue(line);
+                } else if (line.startsWith("wchar:")) {
+                    writtenChars = parseValue(line);
+                }
+            }
+
+            long peakRssBytes = 0;
+            for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status"))) {
+                if (line.startsWith("VmHWM:")) {
+                    peakRssBytes = Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+                }
+            }
+
+            return new long[] { cpuTicks, readBytes, writeBytes, network ? writtenChars : 0, rssBytes, peakRssBytes };
+        } catch (IOException | RuntimeException e) {
+            return null; // exited between listing and reading, or not ours to read
+        }
+    }
+
+    private long parseValue(String line) {
+        return Long.parseLong(line.substring(line.indexOf(':') + 1).trim());
+    }
+
+    private static class Usage {
+        final List<Root> roots = new CopyOnWriteArrayList<>();
+        final Map<Long, long[]> trees = new ConcurrentHashMap<>(); // root pid -> totals of its tree
+        volatile long peakRssBytes;
+    }
+
+    private static class Root {
+        final Process process;
+        final boolean network;
+
+        Root(Process process, boolean network) {
+            this.process = process;
+            this.network = network;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.clipit.job_service.service;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Seconds from JVM start until the app is ready and until it picks up its first job.
+ * fast-start.sh reads the "[Startup]" log lines to benchmark a new worker.
+ */
+@Service
+public class StartupMetrics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private final AtomicLong readyMillis = new AtomicLong();
+    private final AtomicLong firstJobMillis = new AtomicLong();
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("clipit.startup.ready", readyMillis, millis -> millis.get() / 1000.0)
+                .baseUnit("seconds").description("JVM start until the application was ready")
+                .register(meterRegistry);
+        Gauge.builder("clipit.startup.first-job", firstJobMillis, millis -> millis.get() / 1000.0)
+                .baseUnit("seconds").description("JVM start until the first job was picked up (0 = none yet)")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        readyMillis.set(System.currentTimeMillis() - jvmStartMillis);
+        System.out.println("[Startup] Ready in " + readyMillis.get() / 1000.0 + "s");
+    }
+
+    public void markJobStarted() {
+        if (firstJobMillis.compareAndSet(0, System.currentTimeMillis() - jvmStartMillis)) {
+            System.out.println("[Startup] First job picked up " + firstJobMillis.get() / 1000.0 + "s after JVM start");
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.clipit.job_service.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.clipit.job_service.dto.UploadRequest;
+import com.clipit.job_service.entity.Upload;
+import com.clipit.job_service.repository.UploadRepository;
+
+/**
+ * Resumable uploads of local files into temp-dir, used as job sources. The client declares the
+ * size (and optionally a SHA-256), then sends the bytes in chunks that are streamed straight to
+ * upload_{id}.part at the offset the previous chunk ended. An interrupted chunk keeps what arrived,
+ * so the client asks for the offset and continues; a chunk sent with its own checksum is all or
+ * nothing. The last chunk triggers the whole-file checksum check.
+ */
+@Service
+public class UploadService {
+
+    // originalUrl of jobs made from an upload: upload:{uploadId}
+    public static final String SOURCE_PREFIX = "upload:";
+
+    private static final String PART_SUFFIX = ".part";
+
+    @Value("${app.upload.max-bytes:10737418240}")
+    private long maxBytes;
+
+    // Unfinished uploads per user
+    @Value("${app.upload.max-pending:5}")
+    private int maxPending;
+
+    // Completed uploads are kept this long for jobs (and retries); unfinished ones after their last chunk
+    @Value("${app.upload.keep-hours:24}")
+    private long keepHours;
+
+    @Value("${app.storage.temp-dir}")
+    private String tempDir;
+
+    @Autowired
+    private UploadRepository uploadRepository;
+
+    // Uploads with a chunk being written, one chunk at a time per upload
+    private final Set<String> writing = ConcurrentHashMap.newKeySet();
+
+    public Upload create(String userId, UploadRequest request) {
+        if (request.getSize() <= 0 || request.getSize() > maxBytes) {
+            throw new IllegalArgumentException("Size must be between 1 and " + maxBytes + " bytes");
+        }
+        if (request.getSha256() != null && !request.getSha256().matches("[0-9a-fA-F]{64}")) {
+            throw new IllegalArgumentException("sha256 must be 64 hex characters");
+        }
+        if (uploadRepository.countByUserIdAndStatus(userId, "UPLOADING") >= maxPending) {
+            throw new IllegalArgumentException("Too many unfinished uploads, finish or wait for them to expire");
+        }
+        new File(tempDir).mkdirs();
+        if (new File(tempDir).getUsableSpace() < request.getSize()) {
+            throw new IllegalArgumentException("Not enough disk space for " + request.getSize() + " bytes");
+        }
+
+        Upload upload = new Upload();
+        upload.setUploadId(UUID.randomUUID().toString());
+        upload.setUserId(userId);
+        upload.setFileName(request.getFileName() != null ? new File(request.getFileName()).getName() : null);
+        upload.setSize(request.getSize());
+        upload.setSha256(request.getSha256() != null ? request.getSha256().toLowerCase() : null);
+        upload.setStatus("UPLOADING");
+
+        try {
+            new File(getPath(upload.getUploadId()) + PART_SUFFIX).createNewFile();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create upload file", e);
+        }
+        return uploadRepository.save(upload);
+    }
+
+    // receivedBytes is the offset to continue from
+    public Upload get(String userId, String uploadId) {
+        Upload upload = uploadRepository.findByUploadIdAndUserId(uploadId, userId).orElse(null);
+        File part = upload != null ? new File(getPath(uploadId) + PART_SUFFIX) : null;
+        if (part != null && "UPLOADING".equals(upload.getStatus()) && part.exists() && !writing.contains(uploadId)) {
+            upload.setReceivedBytes(part.length());
+        }
+        return upload;
+    }
+
+    // Keeps an upload around while jobs keep using it
+    public void touch(Upload upload) {
+        upload.setUpdatedAt(LocalDateTime.now());
+        uploadRepository.save(upload);
+    }
+
+    // A finished upload that can be used as a job source, null otherwise
+    public Upload getCompleted(String userId, String uploadId) {
+        Upload upload = get(userId, uploadId);
+        if (upload == null || !"COMPLETE".equals(upload.getStatus()) || !new File(getPath(uploadId)).exists()) {
+            return null;
+        }
+        return upload;
+    }
+
+    public String getPath(String uploadId) {
+        return tempDir + "upload_" + uploadId;
+    }
+
+    /**
+     * Appends one chunk at `offset`, which must be where the previous one ended. chunkSha256 (optional)
+     * makes the chunk all or nothing. Throws IllegalStateException when the chunk can't be taken right
+     * now (wrong offset, already complete, another chunk in flight) and IllegalArgumentException when
+     * it is invalid (past the declared size, checksum mismatch).
+     */
+    public Upload writeChunk(Upload upload, long offset, InputStream body, String chunkSha256) throws IOException {
+        if (!"UPLOADING".equals(upload.getStatus())) {
+            throw new IllegalStateException("Upload is " + upload.getStatus());
+        }
+        File part = new File(getPath(upload.getUploadId()) + PART_SUFFIX);
+        if (!part.exists()) {
+            throw new IllegalStateException("Upload is not stored on this instance");
+        }
+        if (!writing.add(upload.getUploadId())) {
+            throw new IllegalStateException("Another chunk is being written");
+        }
+
+        try (FileChannel channel = FileChannel.open(part.toPath(), StandardOpenOption.WRITE)) {
+            // The file is the source of truth: it survives restarts that lost the last receivedBytes update
+            if (offset != channel.size()) {
+                throw new IllegalStateException("Expected offset " + channel.size());
+            }
+
+            MessageDigest digest = chunkSha256 != null ? MessageDigest.getInstance("SHA-256") : null;
+            long remaining = upload.getSize() - offset;
+            byte[] buffer = new byte[64 * 1024];
+            channel.position(offset);
+            try {
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    if (read > remaining) {
+                        channel.truncate(offset);
+                        throw new IllegalArgumentException("Chunk goes past the declared size of " + upload.getSize() + " bytes");
+                    }
+                    ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+                    while (data.hasRemaining()) {
+                        channel.write(data);
+                    }
+                    if (digest != null) {
+                        digest.update(buffer, 0, read);
+                    }
+                    remaining -= read;
+                }
+            } catch (IOException e) {
+                // Client went away: keep what arrived unless the chunk had to arrive whole
+                if (digest != null) {
+                    channel.truncate(offset);
+                }
+                throw e;
+            } finally {
+                upload.setReceivedBytes(channel.size());
+                upload.setUpdatedAt(LocalDateTime.now());
+            }
+
+            if (digest != null && !HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(chunkSha256)) {
+                channel.truncate(offset);
+                upload.setReceivedBytes(offset);
+                throw new IllegalArgumentException("Chunk checksum mismatch");
+            }
+            channel.force(false);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } finally {
+            writing.remove(upload.getUploadId());
+            uploadRepository.save(upload);
+        }
+
+        if (upload.getReceivedBytes() == upload.getSize()) {
+            complete(upload, part);
+        }
+        return upload;
+    }
+
+    // Checks the whole file against the declared checksum and makes it usable as a job source
+    private void complete(Upload upload, File part) throws IOException {
+        if (upload.getSha256() != null) {
+            String actual = sha256(part);
+            if (!actual.equals(upload.getSha256())) {
+                part.delete();
+                upload.setStatus("FAILED");
+                uploadRepository.save(upload);
+                throw new IllegalArgumentException("Checksum mismatch: got " + actual + ", upload discarded");
+            }
+        }
+
+        Files.move(part.toPath(), new File(getPath(upload.getUploadId())).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        upload.setStatus("COMPLETE");
+        uploadRepository.save(upload);
+        System.out.println("[Upload] Received " + upload.getSize() + " bytes for upload " + upload.getUploadId());
+    }
+
+    private String sha256(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[1024 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Cron expression: At minute 15 of every hour, drop expired and abandoned uploads
+    @Scheduled(cron = "0 15 * * * *")
+    public void cleanupExpired() {
+        int count = 0;
+        for (Upload upload : uploadRepository.findByUpdatedAtBefore(LocalDateTime.now().minusHours(keepHours))) {
+            new File(getPath(upload.getUploadId())).delete();
+            new File(getPath(upload.getUploadId()) + PART_SUFFIX).delete();
+            uploadRepository.delete(upload);
+            count++;
+        }
+        System.out.println("[Cleanup] Deleted " + count + " expired uploads.");
+    }
+}
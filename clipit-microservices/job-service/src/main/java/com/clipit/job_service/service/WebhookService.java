@@ -0,0 +1,291 @@
+package com.clipit.job_service.service;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.clipit.job_service.entity.Job;
+import com.clipit.job_service.entity.Webhook;
+import com.clipit.job_service.entity.WebhookDelivery;
+import com.clipit.job_service.repository.WebhookDeliveryRepository;
+import com.clipit.job_service.repository.WebhookRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Job completion webhooks through an outbox table. Finishing a job writes one row per endpoint
+ * (the job's callbackUrl and each of the user's registered webhooks). A poller sends due rows
+ * batched per endpoint as {"events": [...]}, signed with
+ * X-ClipIt-Signature: t={unix seconds},v1={hex HMAC-SHA256 of "t.body"}.
+ * Failed batches back off exponentially with jitter and end up DEAD after max-attempts.
+ * Delivery is at-least-once; receivers should de-duplicate on the event id.
+ */
+@Service
+public class WebhookService {
+
+    public static final String SIGNATURE_HEADER = "X-ClipIt-Signature";
+
+    @Value("${app.webhook.signing-secret:}")
+    private String defaultSecret; // for callbackUrl jobs that didn't send their own callbackSecret
+
+    @Value("${app.webhook.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.webhook.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.webhook.base-backoff-seconds:10}")
+    private long baseBackoffSeconds;
+
+    @Value("${app.webhook.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    @Value("${app.webhook.timeout-seconds:10}")
+    private long timeoutSeconds;
+
+    // Off in production: stops users from pointing webhooks at internal services
+    @Value("${app.webhook.allow-private-hosts:false}")
+    private boolean allowPrivateHosts;
+
+    @Autowired
+    private WebhookRepository webhookRepository;
+
+    @Autowired
+    private WebhookDeliveryRepository webhookDeliveryRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SecureRandom random = new SecureRandom();
+    private HttpClient httpClient;
+
+    private HttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(timeoutSeconds)).build();
+        }
+        return httpClient;
+    }
+
+    public Webhook register(String userId, String url) {
+        validateUrl(url);
+
+        byte[] secret = new byte[32];
+        random.nextBytes(secret);
+
+        Webhook webhook = new Webhook();
+        webhook.setUserId(userId);
+        webhook.setUrl(url);
+        webhook.setSecret(HexFormat.of().formatHex(secret));
+        return webhookRepository.save(webhook);
+    }
+
+    // Rejects anything but http(s), and private/loopback hosts unless allowed
+    public void validateUrl(String url) {
+        try {
+            URI uri = URI.create(url);
+            if (!"http".equals(uri.getScheme()) && !"https".equals(uri.getScheme()) || uri.getHost() == null) {
+                throw new IllegalArgumentException("Webhook URL must be http(s)");
+            }
+            checkPublicHost(uri);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid webhook URL: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Resolves the host and rejects it if any address is private. Also run right before each
+     * delivery, since the name may resolve elsewhere by then (DNS rebinding). The JVM caches the
+     * lookup (networkaddress.cache.ttl, 30s by default), so the client connects to the addresses
+     * checked here; redirects are not followed.
+     */
+    private void checkPublicHost(URI uri) throws Exception {
+        if (allowPrivateHosts) {
+            return;
+        }
+        for (InetAddress address : InetAddress.getAllByName(uri.getHost())) {
+            if (isPrivateAddress(address)) {
+                throw new IllegalArgumentException("Webhook URL must point to a public host");
+            }
+        }
+    }
+
+    // Loopback, RFC 1918, link-local, CGNAT (100.64/10), "this network" (0/8), multicast and IPv6 ULAs (fc00::/7)
+    static boolean isPrivateAddress(InetAddress address) {
+        if (address.isLoopbackAddress() || address.isSiteLocalAddress() || address.isLinkLocalAddress()
+                || address.isAnyLocalAddress() || address.isMulticastAddress()) {
+            return true;
+        }
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            return bytes[0] == 0 || (bytes[0] == 100 && (bytes[1] & 0xC0) == 64);
+        }
+        return (bytes[0] & 0xFE) == 0xFC;
+    }
+
+    /**
+     * Queues the job's terminal status for its callback URL and the user's webhooks.
+     */
+    public void enqueue(Job job) {
+        List<String[]> targets = new ArrayList<>(); // {url, secret}
+        if (job.getCallbackUrl() != null && !job.getCallbackUrl().isEmpty()) {
+            String secret = job.getCallbackSecret() != null ? job.getCallbackSecret() : defaultSecret;
+            targets.add(new String[] { job.getCallbackUrl(), secret });
+        }
+        for (Webhook webhook : webhookRepository.findByUserId(job.getUserId())) {
+            targets.add(new String[] { webhook.getUrl(), webhook.getSecret() });
+        }
+
+        for (String[] target : targets) {
+            WebhookDelivery delivery = new WebhookDelivery();
+            delivery.setUserId(job.getUserId());
+            delivery.setExternalId(job.getExternalId());
+            delivery.setUrl(target[0]);
+            delivery.setSecret(target[1]);
+            delivery.setPayload("{}");
+            delivery.setStatus("PENDING");
+            delivery.setNextAttemptAt(LocalDateTime.now());
+            delivery = webhookDeliveryRepository.save(delivery);
+
+            // The row id doubles as the event id receivers de-duplicate on
+            ObjectNode event = objectMapper.createObjectNode();
+            event.put("id", delivery.getId());
+            event.put("type", "job." + job.getStatus().name().toLowerCase());
+            event.put("externalId", job.getExternalId());
+            event.put("status", job.getStatus().name());
+            event.put("originalUrl", job.getOriginalUrl());
+            event.put("occurredAt", delivery.getCreatedAt().toString());
+            delivery.setPayload(event.toString());
+            webhookDeliveryRepository.save(delivery);
+        }
+    }
+
+    // Every 2 seconds: send what's due, one request per endpoint per batch
+    @Scheduled(fixedDelay = 2000)
+    public void deliverPending() {
+        List<WebhookDelivery> due = webhookDeliveryRepository
+                .findTop500ByStatusAndNextAttemptAtBeforeOrderByIdAsc("PENDING", LocalDateTime.now());
+        if (due.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<WebhookDelivery>> byEndpoint = new LinkedHashMap<>();
+        for (WebhookDelivery delivery : due) {
+            byEndpoint.computeIfAbsent(delivery.getUrl() + "\n" + delivery.getSecret(), k -> new ArrayList<>()).add(delivery);
+        }
+
+        for (List<WebhookDelivery> deliveries : byEndpoint.values()) {
+            for (int i = 0; i < deliveries.size(); i += batchSize) {
+                send(deliveries.subList(i, Math.min(i + batchSize, deliveries.size())));
+            }
+        }
+    }
+
+    private void send(List<WebhookDelivery> batch) {
+        WebhookDelivery first = batch.get(0);
+        StringBuilder body = new StringBuilder("{\"events\":[");
+        for (int i = 0; i < batch.size(); i++) {
+            body.append(i > 0 ? "," : "").append(batch.get(i).getPayload());
+        }
+        body.append("]}");
+
+        String error;
+        try {
+            checkPublicHost(URI.create(first.getUrl()));
+
+            long timestamp = System.currentTimeMillis() / 1000;
+            HttpRequest request = HttpRequest.newBuilder(URI.create(first.getUrl()))
+                    .timeout(Duration.ofSeconds(timeoutSeconds))
+                    .header("Content-Type", "application/json")
+                    .header("User-Agent", "ClipIt-Webhooks")
+                    .header(SIGNATURE_HEADER, "t=" + timestamp + ",v1=" + sign(first.getSecret(), timestamp + "." + body))
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build();
+            HttpResponse<Void> response = getHttpClient().send(request, HttpResponse.BodyHandlers.discarding());
+
+            if (response.statusCode() / 100 == 2) {
+                for (WebhookDelivery delivery : batch) {
+                    delivery.setStatus("DELIVERED");
+                    delivery.setAttempts(delivery.getAttempts() + 1);
+                    delivery.setDeliveredAt(LocalDateTime.now());
+                    delivery.setLastError(null);
+                }
+                webhookDeliveryRepository.saveAll(batch);
+                return;
+            }
+            error = "HTTP " + response.statusCode();
+        } catch (Exception e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+
+        for (WebhookDelivery delivery : batch) {
+            int attempts = delivery.getAttempts() + 1;
+            delivery.setAttempts(attempts);
+            delivery.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            if (attempts >= maxAttempts) {
+                delivery.setStatus("DEAD");
+            } else {
+                delivery.setNextAttemptAt(LocalDateTime.now().plusSeconds(getBackoffSeconds(attempts)));
+            }
+        }
+        webhookDeliveryRepository.saveAll(batch);
+        System.err.println("[Webhook] Delivery of " + batch.size() + " events to " + first.getUrl() + " failed: " + error);
+    }
+
+    // base * 2^(attempts-1), capped, with the upper half jittered so failing endpoints don't get hit in lockstep
+    private long getBackoffSeconds(int attempts) {
+        long ceiling = Math.min(maxBackoffSeconds, baseBackoffSeconds << Math.min(attempts - 1, 20));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private String sign(String secret, String payload) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec((secret == null ? "" : secret).getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public List<WebhookDelivery> getDeadLetters(String userId) {
+        return webhookDeliveryRepository.findByUserIdAndStatusOrderByCreatedAtDesc(userId, "DEAD");
+    }
+
+    // Puts a dead delivery back in the outbox with a fresh set of attempts
+    public boolean retry(String userId, Long deliveryId) {
+        WebhookDelivery delivery = webhookDeliveryRepository.findByIdAndUserId(deliveryId, userId).orElse(null);
+        if (delivery == null || !"DEAD".equals(delivery.getStatus())) {
+            return false;
+        }
+        delivery.setStatus("PENDING");
+        delivery.setAttempts(0);
+        delivery.setNextAttemptAt(LocalDateTime.now());
+        webhookDeliveryRepository.save(delivery);
+        return true;
+    }
+
+    // Cron expression: At minute 45 past 3 AM every day, drop delivered events older than a week
+    @Scheduled(cron = "0 45 3 * * *")
+    @Transactional
+    public void deleteDelivered() {
+        long count = webhookDeliveryRepository.deleteByStatusAndCreatedAtBefore("DELIVERED", LocalDateTime.now().minusDays(7));
+        System.out.println("[Cleanup] Deleted " + count + " delivered webhook events.");
+    }
+}
@@ -0,0 +1,245 @@
+package com.clipit.job_service.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps a few Python processes with yt-dlp already imported, so metadata lookups don't pay
+ * interpreter startup and extractor initialization each time. Workers speak line-delimited
+ * JSON (see ytdlp_worker.py) and are replaced after max-requests lookups or a failed health check.
+ *
+ * extract() returns null whenever no healthy worker is available, and callers fall back to a
+ * one-shot yt-dlp process. Downloads always use one-shot processes, since the watchdog cancels
+ * jobs by killing their process.
+ */
+@Service
+public class YtDlpWorkerPool {
+
+    private static final String WORKER_SCRIPT = "ytdlp_worker.py";
+
+    @Value("${app.extract.python:python3}")
+    private String pythonPath;
+
+    @Value("${app.extract.workers:2}")
+    private int workerCount; // 0 = always use one-shot processes
+
+    @Value("${app.extract.max-requests:200}")
+    private int maxRequests;
+
+    @Value("${app.extract.timeout-seconds:30}")
+    private int timeoutSeconds;
+
+    // How long a lookup waits for a busy pool before going one-shot instead
+    @Value("${app.extract.acquire-millis:500}")
+    private long acquireMillis;
+
+    @Value("${app.storage.temp-dir}")
+    private String tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger liveWorkers = new AtomicInteger();
+    private final AtomicLong nextRequestId = new AtomicLong();
+
+    private File scriptFile;
+    private volatile boolean shutdown;
+
+    @PostConstruct
+    public void init() {
+        if (workerCount <= 0) {
+            return;
+        }
+        // Warm up in the background so a slow interpreter doesn't hold up startup
+        CompletableFuture.runAsync(() -> {
+            try {
+                scriptFile = new File(tempDir, WORKER_SCRIPT);
+                scriptFile.getParentFile().mkdirs();
+                try (InputStream in = new ClassPathResource(WORKER_SCRIPT).getInputStream()) {
+                    Files.copy(in, scriptFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                fillPool();
+            } catch (Exception e) {
+                System.err.println("[Extract] Worker pool disabled: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Runs extract_info (download=False) for the URL, with the format selector applied if given.
+     * Returns the sanitized info dict, or null if the pool can't serve the request.
+     * Throws if yt-dlp itself reported an error, since a one-shot process would fail the same way.
+     */
+    public JsonNode extract(String url, String formatSelector) throws Exception {
+        if (workerCount <= 0 || scriptFile == null) {
+            return null;
+        }
+
+        Worker worker = idle.poll(acquireMillis, TimeUnit.MILLISECONDS);
+        if (worker == null) {
+            return null;
+        }
+
+        ObjectNode request = objectMapper.createObjectNode();
+        request.put("op", "extract");
+        request.put("url", url);
+        if (formatSelector != null) {
+            request.put("format", formatSelector);
+        }
+
+        JsonNode response = worker.call(request, timeoutSeconds);
+        if (response == null) {
+            retire(worker);
+            return null;
+        }
+
+        if (++worker.served >= maxRequests) {
+            retire(worker);
+        } else {
+            idle.offer(worker);
+        }
+
+        if (!response.path("ok").asBoolean()) {
+            throw new RuntimeException("yt-dlp: " + response.path("error").asText());
+        }
+        return response.get("info");
+    }
+
+    // Pings idle workers and tops the pool back up
+    @Scheduled(fixedDelay = 60000)
+    public void checkWorkers() {
+        if (workerCount <= 0 || scriptFile == null) {
+            return;
+        }
+
+        List<Worker> checked = new ArrayList<>();
+        idle.drainTo(checked);
+        for (Worker worker : checked) {
+            ObjectNode ping = objectMapper.createObjectNode();
+            ping.put("op", "ping");
+            if (worker.call(ping, 5) != null) {
+                idle.offer(worker);
+            } else {
+                System.err.println("[Extract] Worker failed health check, replacing it");
+                retire(worker);
+            }
+        }
+        fillPool();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shutdown = true;
+        Worker worker;
+        while ((worker = idle.poll()) != null) {
+            worker.process.destroyForcibly();
+        }
+    }
+
+    private void retire(Worker worker) {
+        worker.process.destroyForcibly();
+        liveWorkers.decrementAndGet();
+        CompletableFuture.runAsync(this::fillPool);
+    }
+
+    private synchronized void fillPool() {
+        while (!shutdown && liveWorkers.get() < workerCount) {
+            try {
+                Worker worker = startWorker();
+                liveWorkers.incrementAndGet();
+                idle.offer(worker);
+            } catch (Exception e) {
+                // Retried by the next health check
+                System.err.println("[Extract] Could not start worker: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private Worker startWorker() throws Exception {
+        ProcessBuilder pb = new ProcessBuilder(pythonPath, scriptFile.getPath());
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        Worker worker = new Worker(pb.start());
+
+        // First ping includes the yt_dlp import, so give it the full lookup timeout
+        ObjectNode ping = objectMapper.createObjectNode();
+        ping.put("op", "ping");
+        if (worker.call(ping, timeoutSeconds) == null) {
+            worker.process.destroyForcibly();
+            throw new RuntimeException("worker did not answer ping");
+        }
+        return worker;
+    }
+
+    private class Worker {
+        final Process process;
+        final BufferedWriter stdin;
+        final BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+        int served;
+
+        Worker(Process process) {
+            this.process = process;
+            this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+
+            // Reading on a separate thread lets call() time out instead of blocking on readLine
+            Thread reader = new Thread(() -> {
+                try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = out.readLine()) != null) {
+                        responses.offer(line);
+                    }
+                } catch (Exception e) {
+                    // worker killed
+                }
+            }, "ytdlp-worker-" + process.pid());
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        // Null if the worker died, timed out or answered out of turn; the caller retires it
+        JsonNode call(ObjectNode request, int timeout) {
+            long id = nextRequestId.incrementAndGet();
+            request.put("id", id);
+            try {
+                stdin.write(objectMapper.writeValueAsString(request));
+                stdin.newLine();
+                stdin.flush();
+
+                String line = responses.poll(timeout, TimeUnit.SECONDS);
+                if (line == null) {
+                    return null;
+                }
+                JsonNode response = objectMapper.readTree(line);
+                return response.path("id").asLong() == id ? response : null;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.clipit.job_service.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.clipit.job_service.entity.Job;
+import com.clipit.job_service.entity.JobStatus;
+import com.clipit.job_service.repository.JobRepository;
+
+/**
+ * Streams completed outputs as one ZIP built on the fly: STORED (media is already compressed),
+ * ZIP64 records throughout, CRCs in data descriptors after each entry. Every offset follows from
+ * the file names and sizes alone, so the total length is known up front and any byte range can
+ * be produced without writing the archive anywhere. A range that starts past a file's data needs
+ * that file's CRC, which comes from a small cache filled by earlier downloads or is read from disk.
+ */
+@Service
+public class ZipExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_CACHED_CRCS = 10_000;
+
+    private static final int LOCAL_HEADER = 30, LOCAL_EXTRA = 20, DESCRIPTOR = 24;
+    private static final int CENTRAL_HEADER = 46, CENTRAL_EXTRA = 28;
+    private static final int END_RECORDS = 56 + 20 + 22; // ZIP64 end record + locator + end record
+
+    private static final int VERSION = 45; // 4.5, ZIP64
+    private static final int FLAGS = 0x0808; // data descriptor + UTF-8 names
+
+    @Value("${app.export.max-files:200}")
+    private int maxFiles;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    // "path|size|mtime" -> CRC-32, so resumed ranges don't have to re-read earlier files
+    private final Map<String, Long> crcCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_CACHED_CRCS;
+        }
+    });
+
+    /**
+     * Lays out the archive for the caller's completed jobs. Throws if any id isn't a
+     * completed job of this user with its output still on disk.
+     */
+    public ZipExport prepare(String userId, List<String> externalIds) {
+        if (externalIds.isEmpty() || externalIds.size() > maxFiles) {
+            throw new IllegalArgumentException("Select between 1 and " + maxFiles + " jobs");
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        for (String externalId : new LinkedHashSet<>(externalIds)) {
+            Job job = jobRepository.findByExternalIdAndUserId(externalId, userId).orElse(null);
+            if (job == null || job.getStatus() != JobStatus.COMPLETED || job.getFilePath() == null) {
+                throw new IllegalArgumentException("Job " + externalId + " has no downloadable output");
+            }
+
+            File output = new File(job.getFilePath());
+            if (job.getFilePath().endsWith(JobProcessorService.HLS_PLAYLIST)) {
+                // HLS jobs become a folder with the playlist and its segments
+                File[] files = output.getParentFile().listFiles(File::isFile);
+                if (files == null) {
+                    throw new IllegalArgumentException("Job " + externalId + " has no downloadable output");
+                }
+                Arrays.sort(files);
+                for (File file : files) {
+                    entries.add(new Entry(externalId + "/" + file.getName(), file));
+                }
+            } else if (output.exists()) {
+                entries.add(new Entry(output.getName(), output));
+            } else {
+                throw new IllegalArgumentException("Job " + externalId + " has no downloadable output");
+            }
+        }
+
+        return new ZipExport(entries);
+    }
+
+    /**
+     * Writes bytes [start, end] (inclusive) of the archive.
+     */
+    public void write(ZipExport export, OutputStream out, long start, long end) throws IOException {
+        long position = 0;
+        for (Entry entry : export.entries) {
+            position = writeSlice(out, localHeader(entry), position, start, end);
+
+            long dataStart = position;
+            if (dataStart <= end && dataStart + entry.size > start) {
+                writeData(entry, out, Math.max(start, dataStart) - dataStart, Math.min(end + 1, dataStart + entry.size) - dataStart);
+            }
+            position += entry.size;
+
+            if (position <= end && position + DESCRIPTOR > start) {
+                position = writeSlice(out, descriptor(entry), position, start, end);
+            } else {
+                position += DESCRIPTOR;
+            }
+            if (position > end) {
+                return;
+            }
+        }
+        writeSlice(out, centralDirectory(export), position, start, end);
+    }
+
+    // Writes the part of `bytes` (placed at `position` in the archive) that falls in [start, end]
+    private long writeSlice(OutputStream out, byte[] bytes, long position, long start, long end) throws IOException {
+        long from = Math.max(start, position);
+        long to = Math.min(end + 1, position + bytes.length);
+        if (from < to) {
+            out.write(bytes, (int) (from - position), (int) (to - from));
+        }
+        return position + bytes.length;
+    }
+
+    // Copies [from, to) of the file; a full copy also records its CRC for the descriptor
+    private void writeData(Entry entry, OutputStream out, long from, long to) throws IOException {
+        boolean whole = from == 0 && to == entry.size;
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try (RandomAccessFile file = new RandomAccessFile(entry.file, "r")) {
+            if (file.length() != entry.size) {
+                throw new IOException(entry.name + " changed while exporting");
+            }
+            file.seek(from);
+            long remaining = to - from;
+            while (remaining > 0) {
+                int read = file.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read == -1) {
+                    throw new IOException(entry.name + " ended early");
+                }
+                out.write(buffer, 0, read);
+                if (whole) {
+                    crc.update(buffer, 0, read);
+                }
+                remaining -= read;
+            }
+        }
+
+        if (whole) {
+            crcCache.put(entry.cacheKey(), crc.getValue());
+        }
+    }
+
+    private long crcOf(Entry entry) throws IOException {
+        Long cached = crcCache.get(entry.cacheKey());
+        if (cached != null) {
+            return cached;
+        }
+
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (RandomAccessFile file = new RandomAccessFile(entry.file, "r")) {
+            int read;
+            while ((read = file.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        crcCache.put(entry.cacheKey(), crc.getValue());
+        return crc.getValue();
+    }
+
+    // CRC and sizes are left out here (flag bit 3), they follow the data in the descriptor
+    private byte[] localHeader(Entry entry) {
+        ByteBuffer buffer = littleEndian(LOCAL_HEADER + entry.nameBytes.length + LOCAL_EXTRA);
+        buffer.putInt(0x04034b50);
+        buffer.putShort((short) VERSION);
+        buffer.putShort((short) FLAGS);
+        buffer.putShort((short) 0); // STORED
+        buffer.putShort((short) entry.dosTime);
+        buffer.putShort((short) entry.dosDate);
+        buffer.putInt(0); // CRC-32, in descriptor
+        buffer.putInt(0xFFFFFFFF); // sizes in ZIP64 extra
+        buffer.putInt(0xFFFFFFFF);
+        buffer.putShort((short) entry.nameBytes.length);
+        buffer.putShort((short) LOCAL_EXTRA);
+        buffer.put(entry.nameBytes);
+        buffer.putShort((short) 0x0001); // ZIP64 extended information
+        buffer.putShort((short) 16);
+        buffer.putLong(0);
+        buffer.putLong(0);
+        return buffer.array();
+    }
+
+    private byte[] descriptor(Entry entry) throws IOException {
+        ByteBuffer buffer = littleEndian(DESCRIPTOR);
+        buffer.putInt(0x08074b50);
+        buffer.putInt((int) crcOf(entry));
+        buffer.putLong(entry.size);
+        buffer.putLong(entry.size);
+        return buffer.array();
+    }
+
+    // Built once all CRCs are known; size is bounded by max-files
+    private byte[] centralDirectory(ZipExport export) throws IOException {
+        long centralSize = 0;
+        for (Entry entry : export.entries) {
+            centralSize += CENTRAL_HEADER + entry.nameBytes.length + CENTRAL_EXTRA;
+        }
+
+        ByteBuffer buffer = littleEndian((int) centralSize + END_RECORDS);
+        for (Entry entry : export.entries) {
+            buffer.putInt(0x02014b50);
+            buffer.putShort((short) (3 << 8 | VERSION)); // made by: Unix
+            buffer.putShort((short) VERSION);
+            buffer.putShort((short) FLAGS);
+            buffer.putShort((short) 0);
+            buffer.putShort((short) entry.dosTime);
+            buffer.putShort((short) entry.dosDate);
+            buffer.putInt((int) crcOf(entry));
+            buffer.putInt(0xFFFFFFFF);
+            buffer.putInt(0xFFFFFFFF);
+            buffer.putShort((short) entry.nameBytes.length);
+            buffer.putShort((short) CENTRAL_EXTRA);
+            buffer.putShort((short) 0); // comment
+            buffer.putShort((short) 0); // disk
+            buffer.putShort((short) 0); // internal attributes
+            buffer.putInt(0100644 << 16); // external attributes: regular file, rw-r--r--
+            buffer.putInt(0xFFFFFFFF); // offset in ZIP64 extra
+            buffer.put(entry.nameBytes);
+            buffer.putShort((short) 0x0001);
+            buffer.putShort((short) 24);
+            buffer.putLong(entry.size);
+            buffer.putLong(entry.size);
+            buffer.putLong(entry.offset);
+        }
+
+        long zip64EndOffset = export.centralOffset + centralSize;
+
+        // ZIP64 end of central directory record
+        buffer.putInt(0x06064b50);
+        buffer.putLong(44);
+        buffer.putShort((short) VERSION);
+        buffer.putShort((short) VERSION);
+        buffer.putInt(0);
+        buffer.putInt(0);
+        buffer.putLong(export.entries.size());
+        buffer.putLong(export.entries.size());
+        buffer.putLong(centralSize);
+        buffer.putLong(export.centralOffset);
+
+        // ZIP64 end of central directory locator
+        buffer.putInt(0x07064b50);
+        buffer.putInt(0);
+        buffer.putLong(zip64EndOffset);
+        buffer.putInt(1);
+
+        // End of central directory record, every field deferred to ZIP64
+        buffer.putInt(0x06054b50);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0xFFFF);
+        buffer.putShort((short) 0xFFFF);
+        buffer.putInt(0xFFFFFFFF);
+        buffer.putInt(0xFFFFFFFF);
+        buffer.putShort((short) 0);
+
+        return buffer.array();
+    }
+
+    private ByteBuffer littleEndian(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public static class ZipExport {
+        private final List<Entry> entries;
+        private final long centralOffset;
+        private final long totalSize;
+        private final String etag;
+
+        ZipExport(List<Entry> entries) {
+            this.entries = entries;
+
+            long offset = 0;
+            long centralSize = 0;
+            StringBuilder fingerprint = new StringBuilder();
+            for (Entry entry : entries) {
+                entry.offset = offset;
+                offset += LOCAL_HEADER + entry.nameBytes.length + LOCAL_EXTRA + entry.size + DESCRIPTOR;
+                centralSize += CENTRAL_HEADER + entry.nameBytes.length + CENTRAL_EXTRA;
+                fingerprint.append(entry.cacheKey()).append('\n');
+            }
+            this.centralOffset = offset;
+            this.totalSize = offset + centralSize + END_RECORDS;
+
+            // Same files, sizes and dates give the same bytes, so this is a valid strong ETag for If-Range
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(fingerprint.toString().getBytes(StandardCharsets.UTF_8));
+                this.etag = "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to fingerprint export", e);
+            }
+        }
+
+        public long getTotalSize() {
+            return totalSize;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+    private static class Entry {
+        final String name;
+        final byte[] nameBytes;
+        final File file;
+        final long size;
+        final long lastModified;
+        final int dosTime;
+        final int dosDate;
+        long offset;
+
+        Entry(String name, File file) {
+            this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            this.file = file;
+            this.size = file.length();
+            this.lastModified = file.lastModified();
+
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(lastModified), ZoneId.systemDefault());
+            this.dosTime = time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() / 2;
+            this.dosDate = Math.max(0, time.getYear() - 1980) << 9 | time.getMonthValue() << 5 | time.getDayOfMonth();
+        }
+
+        String cacheKey() {
+            return file.getAbsolutePath() + "|" + size + "|" + lastModified;
+        }
+    }
+}
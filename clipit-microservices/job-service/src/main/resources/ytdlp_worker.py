@@ -0,0 +1,56 @@
+"""
+Long-lived yt-dlp metadata worker for job-service (see YtDlpWorkerPool).
+
+Reads one JSON request per line on stdin and writes one JSON response per line on stdout:
+  {"id": 1, "op": "ping"}                                   -> {"id": 1, "ok": true}
+  {"id": 2, "op": "extract", "url": "...", "format": "..."} -> {"id": 2, "ok": true, "info": {...}}
+Failures are reported as {"id": n, "ok": false, "error": "..."}; the worker keeps running.
+"""
+import json
+import sys
+
+import yt_dlp
+
+# Anything yt-dlp prints must not end up in the protocol stream
+out = sys.stdout
+sys.stdout = sys.stderr
+
+
+def extract(request):
+    opts = {
+        "quiet": True,
+        "no_warnings": True,
+        "noplaylist": True,
+        "skip_download": True,
+        "source_address": "0.0.0.0",  # same as --force-ipv4
+    }
+    if request.get("format"):
+        opts["format"] = request["format"]
+
+    with yt_dlp.YoutubeDL(opts) as ydl:
+        info = ydl.extract_info(request["url"], download=False)
+        return ydl.sanitize_info(info)
+
+
+def main():
+    for line in sys.stdin:
+        if not line.strip():
+            continue
+
+        request_id = None
+        try:
+            request = json.loads(line)
+            request_id = request.get("id")
+            if request.get("op") == "ping":
+                response = {"id": request_id, "ok": True}
+            else:
+                response = {"id": request_id, "ok": True, "info": extract(request)}
+        except BaseException as e:  # yt-dlp raises SystemExit-style errors on some failures
+            response = {"id": request_id, "ok": False, "error": str(e)}
+
+        out.write(json.dumps(response) + "\n")
+        out.flush()
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,65 @@
+package com.clipit.job_service.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class FilesPortFilterTest {
+
+	private FilesPortFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		filter = new FilesPortFilter();
+		ReflectionTestUtils.setField(filter, "publicPort", 8090);
+	}
+
+	@Test
+	void publicPortServesSignedDownloads() throws Exception {
+		assertPassed(request("GET", "/files/abc/abc.mp4", 8090));
+		assertPassed(request("HEAD", "/files/abc/abc.mp4", 8090));
+	}
+
+	@Test
+	void publicPortHidesEverythingElse() throws Exception {
+		assertBlocked(request("GET", "/jobs", 8090));
+		assertBlocked(request("POST", "/jobs/start-job", 8090));
+		assertBlocked(request("GET", "/actuator/health", 8090));
+		assertBlocked(request("DELETE", "/files/abc/abc.mp4", 8090));
+		assertBlocked(request("GET", "/filesx", 8090));
+	}
+
+	@Test
+	void mainPortIsUntouched() throws Exception {
+		assertPassed(request("GET", "/jobs", 8082));
+		assertPassed(request("POST", "/jobs/start-job", 8082));
+	}
+
+	private MockHttpServletRequest request(String method, String path, int port) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+		request.setServletPath(path);
+		request.setLocalPort(port);
+		return request;
+	}
+
+	private void assertPassed(MockHttpServletRequest request) throws Exception {
+		MockFilterChain chain = new MockFilterChain();
+		filter.doFilter(request, new MockHttpServletResponse(), chain);
+		assertNotNull(chain.getRequest());
+	}
+
+	private void assertBlocked(MockHttpServletRequest request) throws Exception {
+		MockFilterChain chain = new MockFilterChain();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, chain);
+		assertNull(chain.getRequest());
+		assertEquals(404, response.getStatus());
+	}
+}
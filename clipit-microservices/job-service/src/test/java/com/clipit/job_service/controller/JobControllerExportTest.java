@@ -0,0 +1,115 @@
+package com.clipit.job_service.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.clipit.job_service.entity.Job;
+import com.clipit.job_service.entity.JobStatus;
+import com.clipit.job_service.repository.JobRepository;
+import com.clipit.job_service.service.ZipExportService;
+
+class JobControllerExportTest {
+
+	private static final String USER = "user-1";
+
+	@TempDir
+	Path dir;
+
+	private JobController controller;
+	private long total;
+	private String etag;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		Path output = Files.write(dir.resolve("a.mp4"), new byte[5000]);
+		Job job = new Job();
+		job.setExternalId("a");
+		job.setUserId(USER);
+		job.setStatus(JobStatus.QUEUED);
+		job.setStatus(JobStatus.DOWNLOADING);
+		job.setStatus(JobStatus.COMPLETED);
+		job.setFilePath(output.toString());
+
+		JobRepository jobRepository = mock(JobRepository.class);
+		when(jobRepository.findByExternalIdAndUserId("a", USER)).thenReturn(Optional.of(job));
+
+		ZipExportService zipExportService = new ZipExportService();
+		ReflectionTestUtils.setField(zipExportService, "maxFiles", 200);
+		ReflectionTestUtils.setField(zipExportService, "jobRepository", jobRepository);
+
+		controller = new JobController();
+		ReflectionTestUtils.setField(controller, "zipExportService", zipExportService);
+
+		ZipExportService.ZipExport export = zipExportService.prepare(USER, List.of("a"));
+		total = export.getTotalSize();
+		etag = export.getEtag();
+	}
+
+	@Test
+	void noRangeSendsTheWholeArchive() {
+		ResponseEntity<StreamingResponseBody> response = export(null, null);
+
+		assertEquals(200, response.getStatusCode().value());
+		assertEquals(total, response.getHeaders().getContentLength());
+		assertEquals(etag, response.getHeaders().getETag());
+		assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+	}
+
+	@Test
+	void openEndedRangeResumes() {
+		ResponseEntity<StreamingResponseBody> response = export("bytes=1000-", etag);
+
+		assertEquals(206, response.getStatusCode().value());
+		assertEquals(total - 1000, response.getHeaders().getContentLength());
+		assertEquals("bytes 1000-" + (total - 1) + "/" + total, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+	}
+
+	@Test
+	void boundedAndSuffixRanges() {
+		ResponseEntity<StreamingResponseBody> bounded = export("bytes=10-19", null);
+		assertEquals(206, bounded.getStatusCode().value());
+		assertEquals(10, bounded.getHeaders().getContentLength());
+
+		// An end past the archive is clamped
+		ResponseEntity<StreamingResponseBody> clamped = export("bytes=10-" + (total + 500), null);
+		assertEquals("bytes 10-" + (total - 1) + "/" + total, clamped.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+
+		ResponseEntity<StreamingResponseBody> suffix = export("bytes=-100", null);
+		assertEquals("bytes " + (total - 100) + "-" + (total - 1) + "/" + total, suffix.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+	}
+
+	@Test
+	void staleIfRangeSendsTheWholeArchive() {
+		ResponseEntity<StreamingResponseBody> response = export("bytes=1000-", "\"something-else\"");
+
+		assertEquals(200, response.getStatusCode().value());
+		assertEquals(total, response.getHeaders().getContentLength());
+	}
+
+	@Test
+	void unsatisfiableRange() {
+		ResponseEntity<StreamingResponseBody> response = export("bytes=" + total + "-", null);
+
+		assertEquals(416, response.getStatusCode().value());
+		assertEquals("bytes */" + total, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+	}
+
+	private ResponseEntity<StreamingResponseBody> export(String range, String ifRange) {
+		return controller.exportJobs(USER, List.of("a"), range, ifRange);
+	}
+}
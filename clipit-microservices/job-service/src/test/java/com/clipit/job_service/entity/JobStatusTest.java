@@ -0,0 +1,82 @@
+package com.clipit.job_service.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class JobStatusTest {
+
+	@Test
+	void newJobsStartQueued() {
+		assertTrue(JobStatus.isAllowed(null, JobStatus.QUEUED));
+		assertFalse(JobStatus.isAllowed(null, JobStatus.DOWNLOADING));
+		assertFalse(JobStatus.isAllowed(JobStatus.QUEUED, null));
+	}
+
+	@Test
+	void followsTheLifecycle() {
+		assertTrue(JobStatus.QUEUED.canMoveTo(JobStatus.DOWNLOADING));
+		assertTrue(JobStatus.DOWNLOADING.canMoveTo(JobStatus.PROCESSING));
+		assertTrue(JobStatus.PROCESSING.canMoveTo(JobStatus.COMPLETED));
+		assertTrue(JobStatus.DOWNLOADING.canMoveTo(JobStatus.COMPLETED)); // streamed jobs
+		assertTrue(JobStatus.PROCESSING.canMoveTo(JobStatus.QUEUED)); // re-queued after a restart
+		assertTrue(JobStatus.FAILED.canMoveTo(JobStatus.QUEUED)); // retry
+		assertTrue(JobStatus.PROCESSING.canMoveTo(JobStatus.PROCESSING)); // progress updates
+
+		assertFalse(JobStatus.QUEUED.canMoveTo(JobStatus.COMPLETED));
+		assertFalse(JobStatus.PROCESSING.canMoveTo(JobStatus.DOWNLOADING));
+		assertFalse(JobStatus.COMPLETED.canMoveTo(JobStatus.CANCELLED));
+		assertFalse(JobStatus.CANCELLED.canMoveTo(JobStatus.QUEUED));
+		assertFalse(JobStatus.FAILED.canMoveTo(JobStatus.COMPLETED));
+	}
+
+	@Test
+	void terminalStatusesOnlyLeaveForRetry() {
+		for (JobStatus from : JobStatus.values()) {
+			for (JobStatus to : JobStatus.values()) {
+				if (from.isTerminal() && from != to && from.canMoveTo(to)) {
+					assertEquals(JobStatus.FAILED, from);
+					assertEquals(JobStatus.QUEUED, to);
+				}
+			}
+		}
+	}
+
+	@Test
+	void jobRejectsDisallowedTransitions() {
+		Job job = new Job();
+		job.setStatus(JobStatus.QUEUED);
+		job.setStatus(JobStatus.DOWNLOADING);
+		job.setStatus(JobStatus.COMPLETED);
+
+		assertThrows(IllegalStateException.class, () -> job.setStatus(JobStatus.CANCELLED));
+		assertEquals(JobStatus.COMPLETED, job.getStatus());
+	}
+
+	@Test
+	void codesAreUniqueAndRoundTrip() {
+		JobStatusConverter converter = new JobStatusConverter();
+		Set<Integer> codes = new HashSet<>();
+		for (JobStatus status : JobStatus.values()) {
+			Integer code = converter.convertToDatabaseColumn(status);
+			assertTrue(codes.add(code));
+			assertEquals(status, converter.convertToEntityAttribute(code));
+		}
+		assertEquals(4, converter.convertToDatabaseColumn(JobStatus.COMPLETED));
+	}
+
+	@Test
+	void converterHandlesNullAndUnknownCodes() {
+		JobStatusConverter converter = new JobStatusConverter();
+		assertNull(converter.convertToDatabaseColumn(null));
+		assertNull(converter.convertToEntityAttribute(null));
+		assertThrows(IllegalArgumentException.class, () -> converter.convertToEntityAttribute(99));
+	}
+}
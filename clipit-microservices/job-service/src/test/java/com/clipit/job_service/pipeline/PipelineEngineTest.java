@@ -0,0 +1,119 @@
+package com.clipit.job_service.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class PipelineEngineTest {
+
+	private PipelineEngine engine;
+
+	@BeforeEach
+	void setUp() {
+		engine = new PipelineEngine();
+		ReflectionTestUtils.setField(engine, "ioThreads", 2);
+		ReflectionTestUtils.setField(engine, "workers", 2);
+		engine.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		engine.shutdown();
+	}
+
+	@Test
+	void passesOutputsToDependentStages() throws Exception {
+		Stage video = new Stage("video", Stage.Resource.NETWORK, inputs -> "v");
+		Stage audio = new Stage("audio", Stage.Resource.NETWORK, inputs -> "a");
+		Stage merge = new Stage("merge", Stage.Resource.CPU, inputs -> String.join("+", inputs), video, audio);
+
+		assertEquals("v+a", engine.run(new Pipeline(merge), listener(new AtomicBoolean())));
+	}
+
+	@Test
+	void nullOutputSkipsDependentStages() throws Exception {
+		AtomicBoolean mergeRan = new AtomicBoolean();
+		Stage video = new Stage("video", Stage.Resource.NETWORK, inputs -> null);
+		Stage audio = new Stage("audio", Stage.Resource.NETWORK, inputs -> "a");
+		Stage merge = new Stage("merge", Stage.Resource.CPU, inputs -> {
+			mergeRan.set(true);
+			return "m";
+		}, video, audio);
+
+		assertNull(engine.run(new Pipeline(merge), listener(new AtomicBoolean())));
+		assertFalse(mergeRan.get());
+	}
+
+	@Test
+	void failureSkipsDependentsButLetsOthersFinish() {
+		AtomicBoolean audioDone = new AtomicBoolean();
+		AtomicBoolean mergeRan = new AtomicBoolean();
+		Stage video = new Stage("video", Stage.Resource.NETWORK, inputs -> {
+			throw new IOException("download failed");
+		});
+		Stage audio = new Stage("audio", Stage.Resource.NETWORK, inputs -> {
+			Thread.sleep(300);
+			audioDone.set(true);
+			return "a";
+		});
+		Stage merge = new Stage("merge", Stage.Resource.CPU, inputs -> {
+			mergeRan.set(true);
+			return "m";
+		}, video, audio);
+
+		IOException error = assertThrows(IOException.class, () -> engine.run(new Pipeline(merge), listener(new AtomicBoolean())));
+		assertEquals("download failed", error.getMessage());
+		assertTrue(audioDone.get());
+		assertFalse(mergeRan.get());
+	}
+
+	@Test
+	void cancelWaitsForRunningStages() {
+		AtomicBoolean cancelled = new AtomicBoolean();
+		AtomicBoolean downloadStopped = new AtomicBoolean();
+		AtomicBoolean encodeRan = new AtomicBoolean();
+		Stage download = new Stage("download", Stage.Resource.NETWORK, inputs -> {
+			cancelled.set(true);
+			// Still writing for a while after the cancel, like a process being killed
+			Thread.sleep(1500);
+			downloadStopped.set(true);
+			return "d";
+		});
+		Stage encode = new Stage("encode", Stage.Resource.CPU, inputs -> {
+			encodeRan.set(true);
+			return "e";
+		}, download);
+
+		assertThrows(CancellationException.class, () -> engine.run(new Pipeline(encode), listener(cancelled)));
+		assertTrue(downloadStopped.get());
+		assertFalse(encodeRan.get());
+	}
+
+	private PipelineEngine.Listener listener(AtomicBoolean cancelled) {
+		return new PipelineEngine.Listener() {
+			@Override
+			public boolean isCancelled() {
+				return cancelled.get();
+			}
+
+			@Override
+			public void onStart(Stage stage) {
+			}
+
+			@Override
+			public void onWaiting(Stage stage) {
+			}
+		};
+	}
+}
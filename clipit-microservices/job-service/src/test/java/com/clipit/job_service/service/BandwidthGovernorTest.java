@@ -0,0 +1,52 @@
+package com.clipit.job_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class BandwidthGovernorTest {
+
+	private BandwidthGovernor governor;
+
+	@BeforeEach
+	void setUp() {
+		governor = new BandwidthGovernor();
+		ReflectionTestUtils.setField(governor, "budgetKb", 1000L);
+	}
+
+	@Test
+	void concurrentDownloadsStayWithinTheBudget() {
+		long sum = 0;
+		for (int i = 0; i < 4; i++) {
+			long limit = governor.acquire("download-" + i);
+			assertTrue(limit >= 100, "never below the floor");
+			sum += limit;
+		}
+		// 1000 + three downloads on the floor, not 1000 + 500 + 333 + 250
+		assertEquals(1300, sum);
+	}
+
+	@Test
+	void newDownloadGetsItsFairShareOfWhatIsFree() {
+		ReflectionTestUtils.setField(governor, "budgetKb", 1200L);
+
+		// The first takes everything, so the second only gets the floor until the first ends
+		assertEquals(1200, governor.acquire("a"));
+		assertEquals(100, governor.acquire("b"));
+		governor.release("a");
+
+		// Half of the budget with two running, 1100 free
+		assertEquals(600, governor.acquire("c"));
+		assertEquals(400, governor.acquire("d"));
+	}
+
+	@Test
+	void unlimitedBudgetHandsOutNoLimit() {
+		ReflectionTestUtils.setField(governor, "budgetKb", 0L);
+		assertEquals(0, governor.acquire("a"));
+		assertEquals(0, governor.acquire("b"));
+	}
+}
@@ -0,0 +1,61 @@
+package com.clipit.job_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CpuBudgetTest {
+
+	private CpuBudget budget;
+
+	@BeforeEach
+	void setUp() {
+		budget = new CpuBudget();
+		ReflectionTestUtils.setField(budget, "configuredThreads", 8);
+		ReflectionTestUtils.setField(budget, "minThreads", 1);
+		ReflectionTestUtils.setField(budget, "pinning", "none");
+		ReflectionTestUtils.setField(budget, "meterRegistry", new SimpleMeterRegistry());
+		budget.init();
+	}
+
+	@Test
+	void concurrentEncodesNeverExceedTheTotal() {
+		List<CpuBudget.Allotment> allotments = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			allotments.add(budget.acquire());
+		}
+		int sum = allotments.stream().mapToInt(allotment -> allotment.threads).sum();
+		// 8 + min-threads for the rest, not 8 + 4 + 2 + 2
+		assertEquals(11, sum);
+		assertTrue(allotments.stream().allMatch(allotment -> allotment.threads >= 1));
+	}
+
+	@Test
+	void releasedThreadsGoToTheNextEncode() {
+		CpuBudget.Allotment first = budget.acquire();
+		assertEquals(8, first.threads);
+		budget.release(first);
+
+		CpuBudget.Allotment second = budget.acquire();
+		CpuBudget.Allotment third = budget.acquire();
+		assertEquals(8, second.threads);
+		assertEquals(1, third.threads);
+
+		budget.release(second);
+		assertEquals(4, budget.acquire().threads); // half of 8 with two running, 7 free
+	}
+
+	@Test
+	void applyAddsThreadsBeforeTheOutput() {
+		List<String> command = budget.apply(List.of("ffmpeg", "-i", "in.mp4", "out.mp4"), budget.acquire());
+		assertEquals(List.of("ffmpeg", "-i", "in.mp4", "-threads", "8", "out.mp4"), command.subList(command.size() - 6, command.size()));
+	}
+}
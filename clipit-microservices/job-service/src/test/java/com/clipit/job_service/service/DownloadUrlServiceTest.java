@@ -0,0 +1,96 @@
+package com.clipit.job_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.clipit.job_service.entity.Job;
+
+class DownloadUrlServiceTest {
+
+	@TempDir
+	Path outputDir;
+
+	private DownloadUrlService service;
+	private Job job;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		service = new DownloadUrlService();
+		ReflectionTestUtils.setField(service, "signingSecret", "test-secret");
+		ReflectionTestUtils.setField(service, "publicBaseUrl", "https://node1.example.com:8090/");
+		ReflectionTestUtils.setField(service, "urlTtlSeconds", 300L);
+		ReflectionTestUtils.setField(service, "outputDir", outputDir.toString() + File.separator);
+		service.init();
+
+		Files.writeString(outputDir.resolve("abc.mp4"), "video");
+		job = new Job();
+		job.setExternalId("abc");
+		job.setUserId("42");
+		job.setFilePath(outputDir.resolve("abc.mp4").toString());
+	}
+
+	@Test
+	void signedUrlPointsAtTheNodeAndVerifies() {
+		String url = service.createSignedUrl(job);
+		assertTrue(url.startsWith("https://node1.example.com:8090/files/abc/abc.mp4?"));
+
+		Map<String, String> query = query(url);
+		File file = service.verify("abc", "abc.mp4", query.get("u"), Long.parseLong(query.get("e")), query.get("s"));
+		assertEquals(outputDir.resolve("abc.mp4").toFile(), file);
+	}
+
+	@Test
+	void relativeBaseUrlIsRejected() {
+		DownloadUrlService relative = new DownloadUrlService();
+		ReflectionTestUtils.setField(relative, "signingSecret", "test-secret");
+		ReflectionTestUtils.setField(relative, "publicBaseUrl", "/api");
+
+		assertThrows(IllegalStateException.class, relative::init);
+	}
+
+	@Test
+	void tamperedFieldsAreRejected() {
+		Map<String, String> query = query(service.createSignedUrl(job));
+		long expires = Long.parseLong(query.get("e"));
+
+		assertNull(service.verify("abc", "abc.mp4", "43", expires, query.get("s")));
+		assertNull(service.verify("abc", "abc.mp4", "42", expires + 3600, query.get("s")));
+		assertNull(service.verify("abc", "abc.mp4", "42", expires, query.get("s").replace('a', 'b')));
+	}
+
+	@Test
+	void expiredUrlIsRejected() {
+		ReflectionTestUtils.setField(service, "urlTtlSeconds", -1L);
+		Map<String, String> query = query(service.createSignedUrl(job));
+
+		assertNull(service.verify("abc", "abc.mp4", "42", Long.parseLong(query.get("e")), query.get("s")));
+	}
+
+	@Test
+	void onlyTheJobsOwnOutputIsServed() {
+		assertNull(service.verify("abc", "../abc.mp4", "42", Long.MAX_VALUE, "x"));
+		assertNull(service.verify("abc", "other.mp4", "42", Long.MAX_VALUE, "x"));
+	}
+
+	private Map<String, String> query(String url) {
+		Map<String, String> params = new HashMap<>();
+		for (String pair : url.substring(url.indexOf('?') + 1).split("&")) {
+			String[] parts = pair.split("=", 2);
+			params.put(parts[0], parts[1]);
+		}
+		return params;
+	}
+}
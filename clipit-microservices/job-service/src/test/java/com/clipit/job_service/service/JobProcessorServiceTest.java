@@ -0,0 +1,64 @@
+package com.clipit.job_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.clipit.job_service.entity.JobStatus;
+
+class JobProcessorServiceTest {
+
+	@TempDir
+	Path tempDir;
+
+	@TempDir
+	Path outputDir;
+
+	private JobProcessorService service;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		service = new JobProcessorService();
+		ReflectionTestUtils.setField(service, "tempDir", tempDir.toString() + File.separator);
+		ReflectionTestUtils.setField(service, "outputDir", outputDir.toString() + File.separator);
+
+		for (String name : new String[] { "abc_video.webm.part", "abc_video.resume", "abc_video.format", "abc_audio.m4a", "xyz_video.webm.part" }) {
+			Files.writeString(tempDir.resolve(name), "data");
+		}
+		Files.writeString(outputDir.resolve("abc.mp4"), "half-written");
+		Files.writeString(outputDir.resolve("xyz.mp4"), "done");
+	}
+
+	@Test
+	void watchdogKillKeepsDownloadsForRetry() {
+		service.cleanupAfterKill("abc", JobStatus.FAILED);
+
+		assertTrue(Files.exists(tempDir.resolve("abc_video.webm.part")));
+		assertTrue(Files.exists(tempDir.resolve("abc_video.resume")));
+		assertTrue(Files.exists(tempDir.resolve("abc_video.format")));
+		assertTrue(Files.exists(tempDir.resolve("abc_audio.m4a")));
+		assertFalse(Files.exists(outputDir.resolve("abc.mp4")));
+		assertTrue(Files.exists(outputDir.resolve("xyz.mp4")));
+	}
+
+	@Test
+	void userCancelRemovesEverything() {
+		service.cleanupAfterKill("abc", JobStatus.CANCELLED);
+
+		assertFalse(Files.exists(tempDir.resolve("abc_video.webm.part")));
+		assertFalse(Files.exists(tempDir.resolve("abc_video.resume")));
+		assertFalse(Files.exists(tempDir.resolve("abc_video.format")));
+		assertFalse(Files.exists(tempDir.resolve("abc_audio.m4a")));
+		assertFalse(Files.exists(outputDir.resolve("abc.mp4")));
+		assertTrue(Files.exists(tempDir.resolve("xyz_video.webm.part")));
+		assertTrue(Files.exists(outputDir.resolve("xyz.mp4")));
+	}
+}
@@ -0,0 +1,111 @@
+package com.clipit.job_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.clipit.job_service.dto.JobRequest;
+import com.clipit.job_service.service.JobScheduler.QueuedJob;
+
+@ExtendWith(MockitoExtension.class)
+class JobSchedulerTest {
+
+	@Mock
+	private JobProcessorService jobProcessorService;
+
+	@Mock
+	private PlatformGuard platformGuard;
+
+	private JobScheduler scheduler;
+	private List<QueuedJob> queue;
+	private long now;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() throws Exception {
+		scheduler = new JobScheduler();
+		ReflectionTestUtils.setField(scheduler, "agingFactor", 1.0);
+		ReflectionTestUtils.setField(scheduler, "jobProcessorService", jobProcessorService);
+		ReflectionTestUtils.setField(scheduler, "platformGuard", platformGuard);
+		queue = (List<QueuedJob>) ReflectionTestUtils.getField(scheduler, "queue");
+		now = System.currentTimeMillis();
+
+		lenient().when(platformGuard.tryStart(anyString(), anyString())).thenReturn(true);
+		lenient().when(jobProcessorService.tryAdmit(anyString(), anyString(), any(), any())).thenReturn(true);
+	}
+
+	@Test
+	void picksTheCheapestJob() {
+		queue.add(job("long", "youtube", 100, now));
+		queue.add(job("short", "youtube", 10, now));
+		queue.add(job("medium", "youtube", 50, now));
+
+		assertEquals("short", pickNext(new LinkedHashMap<>()).externalId);
+	}
+
+	@Test
+	void agingLetsOldLargeJobsOvertake() {
+		// 100s of work that has waited 200s counts as -100, ahead of a fresh 10s job
+		queue.add(job("short", "youtube", 10, now));
+		queue.add(job("old-long", "youtube", 100, now - 200_000));
+
+		assertEquals("old-long", pickNext(new LinkedHashMap<>()).externalId);
+	}
+
+	@Test
+	void tiesGoToTheEarlierJob() {
+		ReflectionTestUtils.setField(scheduler, "agingFactor", 0.0);
+		queue.add(job("newer", "youtube", 10, now));
+		queue.add(job("older", "youtube", 10, now - 20_000));
+
+		assertEquals("older", pickNext(new LinkedHashMap<>()).externalId);
+	}
+
+	@Test
+	void skipsSaturatedPlatformsAndJobsWaitingForDisk() throws Exception {
+		queue.add(job("tiktok", "tiktok", 1, now));
+		queue.add(job("big", "youtube", 5, now));
+		queue.add(job("fits", "youtube", 50, now));
+		when(platformGuard.tryStart("tiktok", "tiktok")).thenReturn(false);
+		when(jobProcessorService.tryAdmit(eq("big"), anyString(), any(), any())).thenReturn(false);
+
+		assertEquals("fits", pickNext(new LinkedHashMap<>()).externalId);
+		verify(platformGuard).finish("youtube", "big");
+	}
+
+	@Test
+	void reportsJobsThatCanNeverBeAdmitted() throws Exception {
+		queue.add(job("huge", "youtube", 10, now));
+		when(jobProcessorService.tryAdmit(eq("huge"), anyString(), any(), any()))
+				.thenThrow(new RuntimeException("Job needs more disk space than the volume has"));
+
+		Map<QueuedJob, String> rejected = new LinkedHashMap<>();
+		assertNull(pickNext(rejected));
+		assertEquals("Job needs more disk space than the volume has", rejected.get(queue.get(0)));
+		verify(platformGuard).finish("youtube", "huge");
+	}
+
+	private QueuedJob pickNext(Map<QueuedJob, String> rejected) {
+		return ReflectionTestUtils.invokeMethod(scheduler, "pickNext", rejected);
+	}
+
+	private QueuedJob job(String externalId, String platform, double cost, long submittedAt) {
+		return new QueuedJob(externalId, "user-1", new JobRequest(), null, "merge", platform, cost, submittedAt);
+	}
+}
@@ -0,0 +1,123 @@
+package com.clipit.job_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.clipit.job_service.service.PlatformGuard.ErrorClass;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PlatformGuardTest {
+
+	private static final String YOUTUBE = "youtube";
+
+	private PlatformGuard guard;
+
+	@BeforeEach
+	void setUp() {
+		guard = new PlatformGuard();
+		ReflectionTestUtils.setField(guard, "defaultMaxConcurrent", 4);
+		ReflectionTestUtils.setField(guard, "maxAttempts", 3);
+		ReflectionTestUtils.setField(guard, "failureThreshold", 2);
+		ReflectionTestUtils.setField(guard, "openSeconds", 300L);
+		ReflectionTestUtils.setField(guard, "deferWhenOpen", true);
+		ReflectionTestUtils.setField(guard, "environment", new MockEnvironment());
+		ReflectionTestUtils.setField(guard, "meterRegistry", new SimpleMeterRegistry());
+	}
+
+	@Test
+	void classifiesYtDlpErrors() {
+		assertEquals(ErrorClass.RATE_LIMITED, guard.classify("ERROR: HTTP Error 429: Too Many Requests"));
+		assertEquals(ErrorClass.BLOCKED, guard.classify("ERROR: Sign in to confirm you're not a bot"));
+		assertEquals(ErrorClass.BLOCKED, guard.classify("ERROR: HTTP Error 403: Forbidden"));
+		assertEquals(ErrorClass.UNAVAILABLE, guard.classify("ERROR: [youtube] abc: Private video"));
+		assertEquals(ErrorClass.UNAVAILABLE, guard.classify("ERROR: Unsupported URL: https://example.com"));
+		assertEquals(ErrorClass.NETWORK, guard.classify("ERROR: Read timed out"));
+		assertEquals(ErrorClass.UNKNOWN, guard.classify("ERROR: something else"));
+		assertEquals(ErrorClass.UNKNOWN, guard.classify(null));
+		assertFalse(ErrorClass.UNAVAILABLE.isRetryable());
+	}
+
+	@Test
+	void limitsRunningJobsPerPlatform() {
+		for (int i = 0; i < 4; i++) {
+			assertTrue(guard.tryStart(YOUTUBE, "job-" + i));
+		}
+		assertFalse(guard.tryStart(YOUTUBE, "job-4"));
+		assertTrue(guard.tryStart("tiktok", "job-5"));
+
+		guard.finish(YOUTUBE, "job-0");
+		assertTrue(guard.tryStart(YOUTUBE, "job-4"));
+	}
+
+	@Test
+	void opensAfterConsecutiveRejectionsOnly() {
+		guard.recordFailure(YOUTUBE, ErrorClass.RATE_LIMITED, "a");
+		guard.recordSuccess(YOUTUBE);
+		guard.recordFailure(YOUTUBE, ErrorClass.BLOCKED, "b");
+		guard.recordFailure(YOUTUBE, ErrorClass.NETWORK, "c"); // not a rejection
+		assertFalse(guard.isOpen(YOUTUBE));
+
+		guard.recordFailure(YOUTUBE, ErrorClass.BLOCKED, "d");
+		assertTrue(guard.isOpen(YOUTUBE));
+		assertFalse(guard.tryStart(YOUTUBE, "e"));
+	}
+
+	@Test
+	void halfOpenRunsOneTrialUntilThatJobEnds() {
+		assertTrue(guard.tryStart(YOUTUBE, "old"));
+		openThenHalfOpen();
+
+		assertTrue(guard.tryStart(YOUTUBE, "trial"));
+		assertFalse(guard.tryStart(YOUTUBE, "second"));
+
+		// Jobs from before the breaker opened don't end the trial
+		guard.recordFailure(YOUTUBE, ErrorClass.NETWORK, "old");
+		guard.finish(YOUTUBE, "old");
+		assertFalse(guard.tryStart(YOUTUBE, "second"));
+
+		// The trial ending without a verdict hands it on
+		guard.finish(YOUTUBE, "trial");
+		assertTrue(guard.tryStart(YOUTUBE, "second"));
+	}
+
+	@Test
+	void trialOutcomeClosesOrReopens() {
+		openThenHalfOpen();
+		assertTrue(guard.tryStart(YOUTUBE, "trial"));
+		guard.recordFailure(YOUTUBE, ErrorClass.RATE_LIMITED, "trial");
+		assertEquals("OPEN", guard.getStatus().get(0).getBreaker());
+
+		ReflectionTestUtils.setField(guard, "openSeconds", 0L);
+		guard.recordFailure(YOUTUBE, ErrorClass.RATE_LIMITED, "trial");
+		assertTrue(guard.tryStart(YOUTUBE, "trial-2"));
+		guard.recordSuccess(YOUTUBE);
+		assertEquals("CLOSED", guard.getStatus().get(0).getBreaker());
+		assertTrue(guard.tryStart(YOUTUBE, "after"));
+	}
+
+	@Test
+	void backoffStaysWithinTheExponentialCeiling() {
+		for (int attempt = 1; attempt <= 5; attempt++) {
+			long backoff = guard.getBackoffMillis(ErrorClass.NETWORK, attempt);
+			assertTrue(backoff >= 0 && backoff <= 2_000L << (attempt - 1));
+		}
+		assertTrue(guard.getBackoffMillis(ErrorClass.BLOCKED, 20) <= 120_000);
+		assertEquals(0, guard.getBackoffMillis(ErrorClass.UNAVAILABLE, 1));
+	}
+
+	// Opens with open-seconds 0, so the next check moves it to HALF_OPEN
+	private void openThenHalfOpen() {
+		ReflectionTestUtils.setField(guard, "openSeconds", 0L);
+		guard.recordFailure(YOUTUBE, ErrorClass.RATE_LIMITED, "x");
+		guard.recordFailure(YOUTUBE, ErrorClass.RATE_LIMITED, "y");
+		assertEquals("HALF_OPEN", guard.getStatus().get(0).getBreaker());
+		ReflectionTestUtils.setField(guard, "openSeconds", 300L);
+	}
+}
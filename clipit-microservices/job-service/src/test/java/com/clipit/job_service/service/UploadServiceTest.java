@@ -0,0 +1,183 @@
+package com.clipit.job_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.clipit.job_service.dto.UploadRequest;
+import com.clipit.job_service.entity.Upload;
+import com.clipit.job_service.repository.UploadRepository;
+
+class UploadServiceTest {
+
+	private static final String USER = "user-1";
+
+	@TempDir
+	Path dir;
+
+	private UploadService service;
+	private UploadRepository uploadRepository;
+	private byte[] data;
+
+	@BeforeEach
+	void setUp() {
+		uploadRepository = mock(UploadRepository.class);
+		when(uploadRepository.save(any(Upload.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		service = new UploadService();
+		ReflectionTestUtils.setField(service, "maxBytes", 1_000_000L);
+		ReflectionTestUtils.setField(service, "maxPending", 5);
+		ReflectionTestUtils.setField(service, "tempDir", dir.toString() + File.separator);
+		ReflectionTestUtils.setField(service, "uploadRepository", uploadRepository);
+
+		data = new byte[100_000];
+		new Random(7).nextBytes(data);
+	}
+
+	@Test
+	void chunksInOrderCompleteTheUpload() throws Exception {
+		Upload upload = create(sha256(data));
+
+		service.writeChunk(upload, 0, chunk(0, 40_000), null);
+		assertEquals(40_000, upload.getReceivedBytes());
+		assertEquals("UPLOADING", upload.getStatus());
+
+		service.writeChunk(upload, 40_000, chunk(40_000, data.length), sha256(Arrays.copyOfRange(data, 40_000, data.length)));
+		assertEquals("COMPLETE", upload.getStatus());
+		assertArrayEquals(data, Files.readAllBytes(Path.of(service.getPath(upload.getUploadId()))));
+		assertNotNull(service.getCompleted(USER, upload.getUploadId()));
+	}
+
+	@Test
+	void rejectsChunksAtTheWrongOffset() throws Exception {
+		Upload upload = create(null);
+		service.writeChunk(upload, 0, chunk(0, 1000), null);
+
+		IllegalStateException error = assertThrows(IllegalStateException.class,
+				() -> service.writeChunk(upload, 500, chunk(500, 2000), null));
+		assertEquals("Expected offset 1000", error.getMessage());
+		assertEquals(1000, upload.getReceivedBytes());
+	}
+
+	@Test
+	void interruptedChunkKeepsWhatArrivedAndResumes() throws Exception {
+		Upload upload = create(sha256(data));
+
+		assertThrows(IOException.class, () -> service.writeChunk(upload, 0, failingAfter(30_000), null));
+		// A client reconnecting asks for the offset to continue from
+		assertEquals(30_000, service.get(USER, upload.getUploadId()).getReceivedBytes());
+
+		service.writeChunk(upload, 30_000, chunk(30_000, data.length), null);
+		assertEquals("COMPLETE", upload.getStatus());
+		assertArrayEquals(data, Files.readAllBytes(Path.of(service.getPath(upload.getUploadId()))));
+	}
+
+	@Test
+	void interruptedChunkWithChecksumIsDropped() throws Exception {
+		Upload upload = create(null);
+		service.writeChunk(upload, 0, chunk(0, 1000), null);
+
+		assertThrows(IOException.class, () -> service.writeChunk(upload, 1000, failingAfter(5000), sha256(data)));
+		assertEquals(1000, upload.getReceivedBytes());
+		assertEquals(1000, partFile(upload).length());
+	}
+
+	@Test
+	void chunkChecksumMismatchIsDropped() throws Exception {
+		Upload upload = create(null);
+
+		assertThrows(IllegalArgumentException.class, () -> service.writeChunk(upload, 0, chunk(0, 1000), sha256(new byte[1])));
+		assertEquals(0, upload.getReceivedBytes());
+		assertEquals(0, partFile(upload).length());
+	}
+
+	@Test
+	void chunkPastTheDeclaredSizeIsDropped() throws Exception {
+		Upload upload = create(null);
+		upload.setSize(500);
+
+		assertThrows(IllegalArgumentException.class, () -> service.writeChunk(upload, 0, chunk(0, 1000), null));
+		assertEquals(0, upload.getReceivedBytes());
+	}
+
+	@Test
+	void wholeFileChecksumMismatchFailsTheUpload() throws Exception {
+		Upload upload = create(sha256(new byte[1]));
+
+		assertThrows(IllegalArgumentException.class, () -> service.writeChunk(upload, 0, chunk(0, data.length), null));
+		assertEquals("FAILED", upload.getStatus());
+		assertFalse(partFile(upload).exists());
+		assertNull(service.getCompleted(USER, upload.getUploadId()));
+		assertThrows(IllegalStateException.class, () -> service.writeChunk(upload, 0, chunk(0, 10), null));
+	}
+
+	private Upload create(String sha256) {
+		UploadRequest request = new UploadRequest();
+		request.setFileName("../clip.mp4");
+		request.setSize(data.length);
+		request.setSha256(sha256);
+		Upload upload = service.create(USER, request);
+		assertEquals("clip.mp4", upload.getFileName());
+		when(uploadRepository.findByUploadIdAndUserId(upload.getUploadId(), USER)).thenReturn(Optional.of(upload));
+		return upload;
+	}
+
+	private InputStream chunk(int from, int to) {
+		return new ByteArrayInputStream(data, from, to - from);
+	}
+
+	// Sends the first `bytes` of the file, then the connection drops
+	private InputStream failingAfter(int bytes) {
+		InputStream in = chunk(0, bytes);
+		return new InputStream() {
+			@Override
+			public int read() throws IOException {
+				int value = in.read();
+				if (value == -1) {
+					throw new IOException("Connection reset");
+				}
+				return value;
+			}
+
+			@Override
+			public int read(byte[] buffer, int offset, int length) throws IOException {
+				int read = in.read(buffer, offset, length);
+				if (read == -1) {
+					throw new IOException("Connection reset");
+				}
+				return read;
+			}
+		};
+	}
+
+	private File partFile(Upload upload) {
+		return new File(service.getPath(upload.getUploadId()) + ".part");
+	}
+
+	private String sha256(byte[] bytes) throws Exception {
+		return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+	}
+}
@@ -0,0 +1,40 @@
+package com.clipit.job_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class WebhookServiceTest {
+
+	@Test
+	void privateRangesAreBlocked() throws Exception {
+		for (String address : new String[] { "127.0.0.1", "10.1.2.3", "172.16.0.1", "192.168.1.1", "169.254.169.254",
+				"100.64.0.1", "100.127.255.254", "0.0.0.0", "224.0.0.1", "::1", "fe80::1", "fc00::1", "fd12:3456::1" }) {
+			assertTrue(WebhookService.isPrivateAddress(InetAddress.getByName(address)), address);
+		}
+	}
+
+	@Test
+	void publicAddressesAreAllowed() throws Exception {
+		for (String address : new String[] { "8.8.8.8", "100.63.255.255", "100.128.0.1", "2001:4860:4860::8888" }) {
+			assertFalse(WebhookService.isPrivateAddress(InetAddress.getByName(address)), address);
+		}
+	}
+
+	@Test
+	void validateUrlRejectsPrivateHostsUnlessAllowed() {
+		WebhookService service = new WebhookService();
+		assertThrows(IllegalArgumentException.class, () -> service.validateUrl("http://127.0.0.1:9000/hook"));
+		assertThrows(IllegalArgumentException.class, () -> service.validateUrl("http://[fd00::1]/hook"));
+		assertThrows(IllegalArgumentException.class, () -> service.validateUrl("ftp://8.8.8.8/hook"));
+
+		ReflectionTestUtils.setField(service, "allowPrivateHosts", true);
+		assertDoesNotThrow(() -> service.validateUrl("http://127.0.0.1:9000/hook"));
+	}
+}
@@ -0,0 +1,161 @@
+package com.clipit.job_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.clipit.job_service.entity.Job;
+import com.clipit.job_service.entity.JobStatus;
+import com.clipit.job_service.repository.JobRepository;
+import com.clipit.job_service.service.ZipExportService.ZipExport;
+
+class ZipExportServiceTest {
+
+	private static final String USER = "user-1";
+
+	@TempDir
+	Path dir;
+
+	private JobRepository jobRepository;
+	private byte[] first;
+	private byte[] second;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		jobRepository = mock(JobRepository.class);
+		Random random = new Random(42);
+		first = new byte[200_000];
+		second = new byte[1234];
+		random.nextBytes(first);
+		random.nextBytes(second);
+		completedJob("a", Files.write(dir.resolve("a.mp4"), first));
+		completedJob("b", Files.write(dir.resolve("b.mp3"), second));
+		lenient().when(jobRepository.findByExternalIdAndUserId("missing", USER)).thenReturn(Optional.empty());
+	}
+
+	@Test
+	void writesAZip64ArchiveOfTheExpectedSize() throws Exception {
+		ZipExportService service = service();
+		ZipExport export = service.prepare(USER, List.of("a", "b"));
+		byte[] archive = write(service, export, 0, export.getTotalSize() - 1);
+
+		assertEquals(export.getTotalSize(), archive.length);
+		// 2 x (30 + 5 + 20 local header, data, 24 descriptor) + 2 x (46 + 5 + 28 central) + 98 end records
+		assertEquals(2 * (30 + 5 + 20 + 24) + first.length + second.length + 2 * (46 + 5 + 28) + 98, archive.length);
+
+		ByteBuffer buffer = ByteBuffer.wrap(archive).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(0x04034b50, buffer.getInt(0));
+		assertEquals(0x06054b50, buffer.getInt(archive.length - 22));
+		assertEquals(0x07064b50, buffer.getInt(archive.length - 42));
+		assertEquals(0x06064b50, buffer.getInt(archive.length - 98));
+		// Locator points at the ZIP64 end record
+		assertEquals(archive.length - 98, buffer.getLong(archive.length - 42 + 8));
+
+		File file = dir.resolve("export.zip").toFile();
+		Files.write(file.toPath(), archive);
+		try (ZipFile zip = new ZipFile(file)) {
+			List<? extends ZipEntry> entries = Collections.list(zip.entries());
+			assertEquals(List.of("a.mp4", "b.mp3"), entries.stream().map(ZipEntry::getName).toList());
+			assertEquals(ZipEntry.STORED, entries.get(0).getMethod());
+			assertEquals(crc(first), entries.get(0).getCrc());
+			assertArrayEquals(first, zip.getInputStream(entries.get(0)).readAllBytes());
+			assertArrayEquals(second, zip.getInputStream(entries.get(1)).readAllBytes());
+		}
+	}
+
+	@Test
+	void rangesMatchTheFullArchive() throws Exception {
+		ZipExport export = service().prepare(USER, List.of("a", "b"));
+		long total = export.getTotalSize();
+		byte[] full = write(service(), export, 0, total - 1);
+
+		// Inside the first header, the first file, its descriptor, the second file and the central directory
+		long[] starts = { 10, 1000, 55 + first.length + 5, 134 + first.length + 100, total - 120, total - 1 };
+		for (long start : starts) {
+			// A fresh service has no cached CRCs, like a resume that lands on another instance
+			byte[] head = write(service(), export, 0, start - 1);
+			byte[] tail = write(service(), export, start, total - 1);
+			assertEquals(start, head.length);
+			assertArrayEquals(full, concat(head, tail), "split at " + start);
+		}
+
+		byte[] middle = write(service(), export, 500, 600);
+		assertEquals(101, middle.length);
+		assertArrayEquals(Arrays.copyOfRange(full, 500, 601), middle);
+	}
+
+	@Test
+	void etagChangesWithTheFiles() throws Exception {
+		String before = service().prepare(USER, List.of("a", "b")).getEtag();
+		assertEquals(before, service().prepare(USER, List.of("a", "b")).getEtag());
+
+		Files.write(dir.resolve("b.mp3"), new byte[10]);
+		assertNotEquals(before, service().prepare(USER, List.of("a", "b")).getEtag());
+	}
+
+	@Test
+	void rejectsJobsWithoutOutput() {
+		assertThrows(IllegalArgumentException.class, () -> service().prepare(USER, List.of("a", "missing")));
+		assertThrows(IllegalArgumentException.class, () -> service().prepare(USER, List.of()));
+	}
+
+	private ZipExportService service() {
+		ZipExportService service = new ZipExportService();
+		ReflectionTestUtils.setField(service, "maxFiles", 200);
+		ReflectionTestUtils.setField(service, "jobRepository", jobRepository);
+		return service;
+	}
+
+	private byte[] write(ZipExportService service, ZipExport export, long start, long end) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		service.write(export, out, start, end);
+		return out.toByteArray();
+	}
+
+	private void completedJob(String externalId, Path output) {
+		Job job = new Job();
+		job.setExternalId(externalId);
+		job.setUserId(USER);
+		job.setStatus(JobStatus.QUEUED);
+		job.setStatus(JobStatus.DOWNLOADING);
+		job.setStatus(JobStatus.COMPLETED);
+		job.setFilePath(output.toString());
+		lenient().when(jobRepository.findByExternalIdAndUserId(externalId, USER)).thenReturn(Optional.of(job));
+	}
+
+	private long crc(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		return crc.getValue();
+	}
+
+	private byte[] concat(byte[] head, byte[] tail) {
+		byte[] bytes = new byte[head.length + tail.length];
+		System.arraycopy(head, 0, bytes, 0, head.length);
+		System.arraycopy(tail, 0, bytes, head.length, tail.length);
+		return bytes;
+	}
+}
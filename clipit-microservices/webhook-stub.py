@@ -0,0 +1,47 @@
+#!/usr/bin/env python3
+"""Local webhook receiver for testing: prints each batch and checks X-ClipIt-Signature.
+
+    python3 webhook-stub.py <port> <secret> [fail-first-n]
+
+Run the job service with app.webhook.allow-private-hosts=true to deliver to localhost.
+"""
+import hashlib
+import hmac
+import json
+import sys
+from http.server import BaseHTTPRequestHandler, HTTPServer
+
+PORT = int(sys.argv[1]) if len(sys.argv) > 1 else 9000
+SECRET = sys.argv[2].encode() if len(sys.argv) > 2 else b""
+FAIL_FIRST = int(sys.argv[3]) if len(sys.argv) > 3 else 0
+seen = set()
+requests = 0
+
+
+class Handler(BaseHTTPRequestHandler):
+    def do_POST(self):
+        global requests
+        requests += 1
+        body = self.rfile.read(int(self.headers.get("Content-Length", 0)))
+        parts = dict(p.split("=", 1) for p in self.headers.get("X-ClipIt-Signature", "").split(","))
+        expected = hmac.new(SECRET, parts.get("t", "").encode() + b"." + body, hashlib.sha256).hexdigest()
+        valid = hmac.compare_digest(expected, parts.get("v1", ""))
+
+        if requests <= FAIL_FIRST:
+            print(f"request {requests}: failing on purpose")
+            self.send_response(503)
+            self.end_headers()
+            return
+
+        for event in json.loads(body)["events"]:
+            duplicate = event["id"] in seen  # at-least-once: retries may repeat events
+            seen.add(event["id"])
+            print(f"signature {'ok' if valid else 'INVALID'} {'(duplicate) ' if duplicate else ''}{event}")
+        self.send_response(204 if valid else 401)
+        self.end_headers()
+
+    def log_message(self, *args):
+        pass
+
+
+HTTPServer(("127.0.0.1", PORT), Handler).serve_forever()